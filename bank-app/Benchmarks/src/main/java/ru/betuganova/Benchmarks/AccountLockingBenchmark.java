@@ -0,0 +1,102 @@
+package ru.betuganova.Benchmarks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.ConcurrencyFailureException;
+import ru.betuganova.Model.AccountLocking;
+import ru.betuganova.Model.Transfer;
+import ru.betuganova.Model.TransferResult;
+import ru.betuganova.Service.AccountService.BankAccountService;
+import ru.betuganova.Service.ConflictRetry.AccountConflictStats;
+import ru.betuganova.Service.ConflictRetry.ConflictRetry;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of concurrent single-transfer batches between a few hot accounts of one user with pessimistic locking
+ * (application lock stripes and {@code SELECT ... FOR UPDATE}) and with optimistic locking (version checks and
+ * the conflict retry layer), selected per deployment with {@code bank.accounts.locking}.
+ * Transfers that still conflict after the last attempt are counted as operations and reported at the end of the
+ * trial together with the conflict and retry counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class AccountLockingBenchmark {
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    private AccountLocking locking;
+
+    @Param({"2", "16"})
+    private int hotAccounts;
+
+    private final LongAdder givenUp = new LongAdder();
+    private BenchmarkEnvironment environment;
+    private String sessionToken;
+    private BankAccountService bankAccountService;
+    private long[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(Map.of("bank.accounts.locking", locking.name()));
+        environment.seed(1, 0, 0);
+        sessionToken = environment.loginAs("user1");
+
+        environment.jdbc().update("""
+                INSERT INTO bank_accounts (user_id, balance)
+                SELECT u.id, 1e12 FROM users u, generate_series(2, ?) WHERE u.login = 'user1'
+                """, hotAccounts);
+        accountIds = environment.accountIds();
+        bankAccountService = environment.bean(BankAccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        MeterRegistry meterRegistry = environment.bean(MeterRegistry.class);
+        System.out.printf("%nlocking=%s hotAccounts=%d conflicts=%.0f retries=%.0f given up=%d%n",
+                locking, hotAccounts,
+                meterRegistry.find("bank.accounts.conflicts").counters().stream().mapToDouble(Counter::count).sum(),
+                meterRegistry.find("bank.accounts.retries").counters().stream().mapToDouble(Counter::count).sum(),
+                givenUp.sum());
+
+        List<AccountConflictStats> stats = environment.bean(ConflictRetry.class).getAccountStats();
+        stats.stream().limit(5).forEach(account -> System.out.printf("account %d: conflicts=%d retries=%d%n",
+                account.getAccountId(), account.getConflicts(), account.getRetries()));
+
+        environment.close();
+    }
+
+    /**
+     * Binds the session of the benchmark to every benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        @Setup(Level.Iteration)
+        public void bind(AccountLockingBenchmark benchmark) {
+            benchmark.environment.bindSession(benchmark.sessionToken);
+        }
+    }
+
+    @Benchmark
+    public List<TransferResult> transfer(Client client) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountIds.length);
+        int to = (from + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+
+        try {
+            return bankAccountService.transferBatch(List.of(new Transfer(accountIds[from], accountIds[to], 1)));
+        } catch (ConcurrencyFailureException e) {
+            givenUp.increment();
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.betuganova.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.betuganova.Service.AccountService.BankAccountService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the money-moving {@link BankAccountService} operations of one user
+ * at different numbers of users, friends per user and transactions per account.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BankAccountServiceBenchmark {
+    @Param({"1000", "10000"})
+    private int users;
+
+    @Param({"10", "100"})
+    private int friendsPerUser;
+
+    @Param({"0", "1000"})
+    private int transactionsPerAccount;
+
+    private BenchmarkEnvironment environment;
+    private String sessionToken;
+    private BankAccountService bankAccountService;
+    private long accountId;
+    private long[] recipientAccountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start();
+        environment.seed(users, friendsPerUser, transactionsPerAccount);
+        sessionToken = environment.loginAs("user1");
+
+        bankAccountService = environment.bean(BankAccountService.class);
+        accountId = environment.accountIdOf("user1");
+        recipientAccountIds = Arrays.stream(environment.accountIds())
+                .filter(id -> id != accountId)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    /**
+     * Binds the session of the benchmark to every benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        @Setup(Level.Iteration)
+        public void bind(BankAccountServiceBenchmark benchmark) {
+            benchmark.environment.bindSession(benchmark.sessionToken);
+        }
+    }
+
+    @Benchmark
+    public double withdraw(Client client) {
+        return bankAccountService.withdraw(accountId, 1);
+    }
+
+    @Benchmark
+    public double replenish(Client client) {
+        return bankAccountService.replenish(accountId, 1);
+    }
+
+    @Benchmark
+    public void transferTo(Client client) {
+        long recipient = recipientAccountIds[ThreadLocalRandom.current().nextInt(recipientAccountIds.length)];
+        bankAccountService.transferTo(accountId, recipient, 1);
+    }
+}
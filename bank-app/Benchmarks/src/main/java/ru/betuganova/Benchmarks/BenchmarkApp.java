@@ -0,0 +1,21 @@
+package ru.betuganova.Benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Non-web application context with the service and persistence layers of the bank app, used by the benchmarks.
+ */
+@SpringBootApplication(scanBasePackages = {"ru.betuganova.Service", "ru.betuganova.Mapper"})
+@EntityScan({"ru.betuganova.Entity", "ru.betuganova.Benchmarks"})
+@EnableJpaRepositories({"ru.betuganova.Repository", "ru.betuganova.Benchmarks"})
+public class BenchmarkApp {
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
@@ -0,0 +1,164 @@
+package ru.betuganova.Benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.UserService.UserService;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An embedded PostgreSQL instance with the bank app context started on top of it.
+ * Every JMH fork starts its own environment, so the benchmarks don't need a running database.
+ */
+public class BenchmarkEnvironment implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkEnvironment(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * Starts the database, applies the migrations and starts the application context.
+     *
+     * @return The started environment.
+     * @throws IOException If the embedded database can't be started.
+     */
+    public static BenchmarkEnvironment start() throws IOException {
+        return start(Map.of());
+    }
+
+    /**
+     * Starts the environment like {@link #start()} with additional application properties.
+     *
+     * @param overrides The properties that are added to or replace the defaults of the environment.
+     * @return The started environment.
+     * @throws IOException If the embedded database can't be started.
+     */
+    public static BenchmarkEnvironment start(Map<String, Object> overrides) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+
+        Map<String, Object> properties = new HashMap<>();
+        // Keeps any application.properties on the classpath out, so only the properties below apply.
+        properties.put("spring.config.name", "benchmark");
+        properties.put("spring.datasource.url",
+                postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.jpa.open-in-view", "false");
+        properties.put("spring.jpa.properties.hibernate.jdbc.batch_size", "500");
+        properties.put("spring.jpa.properties.hibernate.order_inserts", "true");
+        properties.put("spring.jpa.properties.hibernate.order_updates", "true");
+        properties.put("spring.jpa.properties.hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        properties.put("spring.flyway.locations", "classpath:db/migration,classpath:db/benchmark");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApp.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties(properties)
+                .run();
+
+        return new BenchmarkEnvironment(postgres, context);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Fills the database with users named {@code user1..userN}, each with one bank account.
+     *
+     * @param users                  The number of users.
+     * @param friendsPerUser         The number of friends of every user.
+     * @param transactionsPerAccount The number of transactions in the history of every account.
+     */
+    public void seed(int users, int friendsPerUser, int transactionsPerAccount) {
+        seed(jdbcTemplate, users, friendsPerUser, transactionsPerAccount);
+    }
+
+    /**
+     * Fills the database behind the JDBC template like {@link #seed(int, int, int)}.
+     */
+    public static void seed(JdbcTemplate jdbcTemplate, int users, int friendsPerUser, int transactionsPerAccount) {
+        int friends = Math.min(friendsPerUser, users - 1);
+
+        jdbcTemplate.update("""
+                INSERT INTO users (login, name, age, gender, hair_color)
+                SELECT 'user' || g, 'User ' || g, 18 + g % 60, g % 3,
+                       (ARRAY['BLACK', 'BROWN', 'BLOND', 'RED', 'WHITE', 'UNKNOWN'])[1 + g % 6]
+                FROM generate_series(1, ?) g
+                """, users);
+
+        jdbcTemplate.update("""
+                INSERT INTO friends (user_id, friend_id)
+                SELECT u.id, f.id
+                FROM users u
+                CROSS JOIN generate_series(1, ?) k
+                JOIN users f ON f.login = 'user' || ((substring(u.login FROM 5)::int + k - 1) % ? + 1)
+                """, friends, users);
+
+        jdbcTemplate.update("INSERT INTO bank_accounts (user_id, balance) SELECT id, 1e12 FROM users");
+
+        jdbcTemplate.update("""
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT 'REPLENISHMENT', 1, a.id
+                FROM bank_accounts a
+                CROSS JOIN generate_series(1, ?)
+                """, transactionsPerAccount);
+
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /**
+     * Opens a session of the given seeded user.
+     *
+     * @param login The login of the user.
+     * @return The session token, to be bound to every benchmark thread with {@link #bindSession(String)}.
+     */
+    public String loginAs(String login) {
+        return bean(UserService.class).login(login);
+    }
+
+    /**
+     * Makes the user of a session the current user of the services on the calling thread.
+     *
+     * @param token The session token.
+     */
+    public void bindSession(String token) {
+        bean(CurrentUserManager.class).bind(token);
+    }
+
+    public long accountIdOf(String login) {
+        return jdbcTemplate.queryForObject(
+                "SELECT a.id FROM bank_accounts a JOIN users u ON u.id = a.user_id WHERE u.login = ?",
+                Long.class, login);
+    }
+
+    public long[] accountIds() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM bank_accounts ORDER BY id", Long.class);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,118 @@
+package ru.betuganova.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Entity.BankAccountEntity;
+import ru.betuganova.Entity.TransactionEntity;
+import ru.betuganova.Exception.NegativeBalanceException;
+import ru.betuganova.Model.TransactionType;
+import ru.betuganova.Repository.BankAccountRepository;
+import ru.betuganova.Repository.TransactionRepository;
+import ru.betuganova.Service.AccountService.BankAccountService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of concurrent withdrawals and replenishments on a single account.
+ * The {@code legacy*} benchmarks reproduce the former read-modify-write implementation
+ * (load the account, change the balance in Java, save it, save the transaction) as the baseline
+ * for the single-statement updates used by {@link BankAccountService}.
+ * The legacy path used to lose updates under contention. With the account version it fails on conflicts instead;
+ * failed attempts are counted as operations, so only its throughput is measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class HotAccountBenchmark {
+    private BenchmarkEnvironment environment;
+    private String sessionToken;
+    private BankAccountService bankAccountService;
+    private BankAccountRepository bankAccountRepository;
+    private TransactionRepository transactionRepository;
+    private TransactionTemplate transactionTemplate;
+    private long accountId;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start();
+        environment.seed(100, 0, 0);
+        sessionToken = environment.loginAs("user1");
+
+        bankAccountService = environment.bean(BankAccountService.class);
+        bankAccountRepository = environment.bean(BankAccountRepository.class);
+        transactionRepository = environment.bean(TransactionRepository.class);
+        transactionTemplate = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        accountId = environment.accountIdOf("user1");
+        userId = bankAccountRepository.findUserIdByAccountId(accountId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    /**
+     * Binds the session of the benchmark to every benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        @Setup(Level.Iteration)
+        public void bind(HotAccountBenchmark benchmark) {
+            benchmark.environment.bindSession(benchmark.sessionToken);
+        }
+    }
+
+    @Benchmark
+    public double withdraw(Client client) {
+        return bankAccountService.withdraw(accountId, 1);
+    }
+
+    @Benchmark
+    public double replenish(Client client) {
+        return bankAccountService.replenish(accountId, 1);
+    }
+
+    @Benchmark
+    public double legacyWithdraw() {
+        return legacyUpdate(-1, TransactionType.WITHDRAWAL);
+    }
+
+    @Benchmark
+    public double legacyReplenish() {
+        return legacyUpdate(1, TransactionType.REPLENISHMENT);
+    }
+
+    private double legacyUpdate(double delta, TransactionType type) {
+        try {
+            return legacyUpdateOnce(delta, type);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double legacyUpdateOnce(double delta, TransactionType type) {
+        return transactionTemplate.execute(status -> {
+            BankAccountEntity bankAccount = bankAccountRepository.findByIdAndUserId(accountId, userId);
+            double newBalance = bankAccount.getBalance() + delta;
+            bankAccount.setBalance(newBalance);
+            bankAccountRepository.save(bankAccount);
+
+            if (newBalance < 0) {
+                throw new NegativeBalanceException("Amount is more than current balance");
+            }
+
+            transactionRepository.save(new TransactionEntity(type.name(), accountId, Math.abs(delta)));
+            bankAccountRepository.save(bankAccount);
+
+            return newBalance;
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package ru.betuganova.Benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load against a running bank app, used to compare the platform and virtual thread modes
+ * ({@code BANK_VIRTUAL_THREADS=false|true}) at the same number of concurrent connections.
+ * Every client registers its own user, logs in, opens an account and then alternates balance reads and
+ * replenishments on it for the given duration, each client on its own virtual thread and connection.
+ * Clients whose setup fails are reported as failed clients; failed requests are counted as errors.
+ *
+ * <pre>
+ * java -cp Benchmarks/target/benchmarks.jar ru.betuganova.Benchmarks.HttpLoadDriver [baseUrl] [clients] [seconds]
+ * </pre>
+ */
+public class HttpLoadDriver {
+    private static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder failedClients = new LongAdder();
+
+    private HttpLoadDriver(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+
+        new HttpLoadDriver(baseUrl).run(clients, duration);
+    }
+
+    private void run(int clients, Duration duration) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        List<Future<long[]>> results = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                String login = "load-" + runId + "-" + i;
+                results.add(executor.submit(() -> runClient(login, deadline)));
+            }
+        }
+
+        long[] latencies = results.stream()
+                .map(this::join)
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .toArray();
+
+        System.out.printf("clients=%d failedClients=%d duration=%ds requests=%d errors=%d throughput=%.0f req/s%n",
+                clients, failedClients.sum(), duration.toSeconds(), latencies.length, errors.sum(),
+                latencies.length / (double) duration.toSeconds());
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1));
+    }
+
+    private long[] runClient(String login, long deadline) throws Exception {
+        send(post("/users?login=" + login + "&name=" + login + "&age=30&gender=Male&hairColor=BLACK", null));
+        String token = send(post("/users/login?login=" + login, null));
+        String accountId = send(post("/bank-accounts?balance=1000", token));
+
+        HttpRequest balance = request("/bank-accounts/" + accountId + "/balance", token).GET().build();
+        HttpRequest replenishment = post("/bank-accounts/" + accountId + "/replenishment?amount=1", token);
+
+        long[] latencies = new long[1024];
+        int count = 0;
+        // Failed requests advance the alternation too, so a failing request isn't repeated in a tight loop.
+        for (long sent = 0; System.nanoTime() < deadline; sent++) {
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = httpClient.send(
+                        sent % 2 == 0 ? balance : replenishment, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                errors.increment();
+                continue;
+            }
+            long latency = System.nanoTime() - start;
+
+            if (response.statusCode() != 200) {
+                errors.increment();
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private String send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+
+        return response.body();
+    }
+
+    private HttpRequest post(String path, String token) {
+        return request(path, token).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60));
+
+        return token == null ? builder : builder.header(SESSION_TOKEN_HEADER, token);
+    }
+
+    /**
+     * Returns the latencies of a client, or none if it couldn't register, log in or open its account.
+     */
+    private long[] join(Future<long[]> result) {
+        try {
+            return result.get();
+        } catch (Exception e) {
+            failedClients.increment();
+            return new long[0];
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.betuganova.Benchmarks;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Repository.TransactionRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to insert a block of transactions through Hibernate with IDENTITY ids (one INSERT per row)
+ * and with the single {@code INSERT ... SELECT FROM unnest(...)} of {@link TransactionRepository#insertAll},
+ * which takes the ids from the column default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IdGenerationBenchmark {
+    @Param({"100000"})
+    private int rows;
+
+    private BenchmarkEnvironment environment;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private TransactionRepository transactionRepository;
+    private IdentityTransactionRepository identityTransactionRepository;
+    private long accountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start();
+        environment.seed(1, 0, 0);
+
+        transactionTemplate = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        entityManager = environment.bean(EntityManager.class);
+        transactionRepository = environment.bean(TransactionRepository.class);
+        identityTransactionRepository = environment.bean(IdentityTransactionRepository.class);
+        accountId = environment.accountIdOf("user1");
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() {
+        environment.jdbc().execute("TRUNCATE transactions, bench_identity_transactions");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public void identity() {
+        List<IdentityTransactionEntity> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            transactions.add(new IdentityTransactionEntity("REPLENISHMENT", accountId, 1));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            identityTransactionRepository.saveAll(transactions);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    @Benchmark
+    public void unnestInsert() {
+        String[] transactionTypes = new String[rows];
+        double[] amounts = new double[rows];
+        long[] accountIds = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            transactionTypes[i] = "REPLENISHMENT";
+            amounts[i] = 1;
+            accountIds[i] = accountId;
+        }
+
+        transactionTemplate.executeWithoutResult(status ->
+                transactionRepository.insertAll(transactionTypes, amounts, accountIds));
+    }
+}
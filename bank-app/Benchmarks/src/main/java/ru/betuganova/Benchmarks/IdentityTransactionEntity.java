@@ -0,0 +1,34 @@
+package ru.betuganova.Benchmarks;
+
+import jakarta.persistence.*;
+
+/**
+ * Copy of the transaction mapping with the former IDENTITY id generation, used as the baseline of
+ * {@link IdGenerationBenchmark}.
+ */
+@Entity
+@Table(name = "bench_identity_transactions")
+public class IdentityTransactionEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "transaction_type")
+    private String transactionType;
+
+    @Column(name = "amount")
+    private double amount;
+
+    @Column(name = "account_id")
+    private Long accountId;
+
+    protected IdentityTransactionEntity() {
+    }
+
+    public IdentityTransactionEntity(String transactionType, long accountId, double amount) {
+        this.transactionType = transactionType;
+        this.accountId = accountId;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,6 @@
+package ru.betuganova.Benchmarks;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IdentityTransactionRepository extends JpaRepository<IdentityTransactionEntity, Long> {
+}
@@ -0,0 +1,116 @@
+package ru.betuganova.Benchmarks;
+
+import org.modelmapper.Converter;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.betuganova.Entity.BankAccountEntity;
+import ru.betuganova.Entity.TransactionEntity;
+import ru.betuganova.Entity.UserEntity;
+import ru.betuganova.Mapper.BankAccountMapper;
+import ru.betuganova.Mapper.TransactionMapper;
+import ru.betuganova.Mapper.UserMapper;
+import ru.betuganova.Model.BankAccount;
+import ru.betuganova.Model.HairColor;
+import ru.betuganova.Model.Transaction;
+import ru.betuganova.Model.User;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Per-object cost of the entity to model mappers. The {@code modelMapper*} benchmarks run the
+ * reflection-based ModelMapper configuration the mappers used before as the baseline.
+ * Run with {@code -prof gc} to compare allocation per mapped object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    @Param({"0", "10", "100"})
+    private int friendsPerUser;
+
+    private UserEntity userEntity;
+    private BankAccountEntity bankAccountEntity;
+    private TransactionEntity transactionEntity;
+
+    private UserMapper userMapper;
+    private BankAccountMapper bankAccountMapper;
+    private TransactionMapper transactionMapper;
+    private ModelMapper legacyUserMapper;
+    private ModelMapper legacyBankAccountMapper;
+    private ModelMapper legacyTransactionMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userEntity = new UserEntity("user1", "User 1", 30, 1, "BLACK");
+        userEntity.setId(1L);
+        for (int i = 0; i < friendsPerUser; i++) {
+            UserEntity friend = new UserEntity("friend" + i, "Friend " + i, 30, 2, "RED");
+            friend.setId(i + 2L);
+            userEntity.addFriend(friend);
+        }
+
+        bankAccountEntity = new BankAccountEntity(1000, 1L);
+        bankAccountEntity.setId(1L);
+
+        transactionEntity = new TransactionEntity("WITHDRAWAL", 1L, 10);
+        transactionEntity.setId(1L);
+
+        userMapper = new UserMapper(null);
+        bankAccountMapper = new BankAccountMapper();
+        transactionMapper = new TransactionMapper();
+
+        legacyUserMapper = new ModelMapper();
+        Converter<String, HairColor> toEnum = ctx -> HairColor.valueOf(ctx.getSource().toUpperCase());
+        Converter<Set<UserEntity>, Set<String>> friendsToLogins = ctx ->
+                ctx.getSource() == null ? null :
+                        ctx.getSource().stream()
+                                .map(UserEntity::getLogin)
+                                .collect(Collectors.toSet());
+        legacyUserMapper.createTypeMap(UserEntity.class, User.class)
+                .addMappings(mapper -> {
+                    mapper.using(toEnum).map(UserEntity::getHairColor, User::setHairColor);
+                    mapper.using(friendsToLogins).map(UserEntity::getFriends, User::setFriends);
+                });
+
+        legacyBankAccountMapper = new ModelMapper();
+        legacyBankAccountMapper.createTypeMap(BankAccountEntity.class, BankAccount.class)
+                .addMappings(mapper -> mapper.skip(BankAccount::setTransactionIdHistory));
+
+        legacyTransactionMapper = new ModelMapper();
+    }
+
+    @Benchmark
+    public User userToModel() {
+        return userMapper.toModel(userEntity);
+    }
+
+    @Benchmark
+    public User modelMapperUserToModel() {
+        return legacyUserMapper.map(userEntity, User.class);
+    }
+
+    @Benchmark
+    public BankAccount bankAccountToModel() {
+        return bankAccountMapper.toModel(bankAccountEntity);
+    }
+
+    @Benchmark
+    public BankAccount modelMapperBankAccountToModel() {
+        return legacyBankAccountMapper.map(bankAccountEntity, BankAccount.class);
+    }
+
+    @Benchmark
+    public Transaction transactionToModel() {
+        return transactionMapper.toModel(transactionEntity);
+    }
+
+    @Benchmark
+    public Transaction modelMapperTransactionToModel() {
+        return legacyTransactionMapper.map(transactionEntity, Transaction.class);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.betuganova.Benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.betuganova.Model.User;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManagerImpl;
+import ru.betuganova.Service.SessionStore.SessionStore;
+import ru.betuganova.Service.SessionStore.SessionStoreImpl;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of session resolution with hundreds of concurrent clients.
+ * No database is involved: resolution only touches the in-memory {@link SessionStore}.
+ * Every invocation binds and reads the session on the same thread, so the check of the resolved user only guards
+ * the measurement; isolation of sessions across requests is verified by {@code SessionIsolationTest} of the
+ * web layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class SessionStoreBenchmark {
+    @Param({"1000", "100000"})
+    private int sessions;
+
+    private SessionStore sessionStore;
+    private CurrentUserManager currentUserManager;
+    private String[] tokens;
+    private String[] logins;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionStore = new SessionStoreImpl(new SimpleMeterRegistry(), Duration.ofMinutes(30), sessions * 2L);
+        currentUserManager = new CurrentUserManagerImpl(sessionStore);
+        tokens = new String[sessions];
+        logins = new String[sessions];
+
+        for (int i = 0; i < sessions; i++) {
+            logins[i] = "user" + (i + 1);
+            tokens[i] = sessionStore.create(new User(logins[i], logins[i], 0, 0, null));
+        }
+    }
+
+    @Benchmark
+    public User resolveSession() {
+        int client = ThreadLocalRandom.current().nextInt(sessions);
+        return resolveAs(tokens[client], logins[client]);
+    }
+
+    @Benchmark
+    public User loginAndLogout() {
+        String login = "guest" + Thread.currentThread().threadId();
+        String token = sessionStore.create(new User(login, login, 0, 0, null));
+
+        try {
+            return resolveAs(token, login);
+        } finally {
+            sessionStore.remove(token);
+        }
+    }
+
+    private User resolveAs(String token, String expectedLogin) {
+        currentUserManager.bind(token);
+
+        try {
+            User user = currentUserManager.getCurrentUser();
+            if (!expectedLogin.equals(user.getLogin())) {
+                throw new IllegalStateException(
+                        "Client '" + expectedLogin + "' sees the session of '" + user.getLogin() + "'");
+            }
+
+            return user;
+        } finally {
+            currentUserManager.unbind();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.betuganova.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.betuganova.Model.CursorPage;
+import ru.betuganova.Model.User;
+import ru.betuganova.Service.UserService.UserService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link UserService} friend and search operations
+ * at different numbers of users and friends per user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param({"1000", "10000"})
+    private int users;
+
+    @Param({"10", "100"})
+    private int friendsPerUser;
+
+    private BenchmarkEnvironment environment;
+    private String sessionToken;
+    private UserService userService;
+    private String strangerLogin;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start();
+        environment.seed(users, friendsPerUser, 0);
+        sessionToken = environment.loginAs("user1");
+
+        userService = environment.bean(UserService.class);
+        strangerLogin = "user" + users;
+        if (friendsPerUser >= users - 1) {
+            throw new IllegalStateException("user1 must have at least one user that is not a friend");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    /**
+     * Binds the session of the benchmark to every benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        @Setup(Level.Iteration)
+        public void bind(UserServiceBenchmark benchmark) {
+            benchmark.environment.bindSession(benchmark.sessionToken);
+        }
+    }
+
+    /**
+     * Adds a friend and deletes it again, so every invocation starts from the seeded friend list.
+     */
+    @Benchmark
+    public void addAndDeleteFriend(Client client) {
+        userService.addFriend(strangerLogin);
+        userService.deleteFriend(strangerLogin);
+    }
+
+    @Benchmark
+    public CursorPage<User> getUsersByHairColorAndGender(Client client) {
+        return userService.getUsersByHairColorAndGender("BLACK", 1, 0, 100);
+    }
+}
@@ -0,0 +1,7 @@
+CREATE TABLE bench_identity_transactions
+(
+    id               BIGSERIAL PRIMARY KEY,
+    transaction_type VARCHAR(255)     NOT NULL,
+    amount           DOUBLE PRECISION NOT NULL,
+    account_id       BIGINT           NOT NULL
+);
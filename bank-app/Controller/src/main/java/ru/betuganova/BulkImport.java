@@ -0,0 +1,55 @@
+package ru.betuganova;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.betuganova.Model.ImportFormat;
+import ru.betuganova.Model.ImportKind;
+import ru.betuganova.Model.ImportReport;
+import ru.betuganova.Service.BulkImporter.BulkImporter;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command line entry point of the bulk import. Starts the application without the web server,
+ * imports one file and prints the report. Files ending with {@code .ndjson} or {@code .jsonl} are read
+ * as NDJSON, anything else as CSV with a header line. Further arguments are passed to Spring,
+ * e.g. {@code --spring.datasource.url=...}.
+ *
+ * <pre>
+ * mvn -pl Controller org.springframework.boot:spring-boot-maven-plugin:3.4.4:run \
+ *     -Dspring-boot.run.main-class=ru.betuganova.BulkImport \
+ *     -Dspring-boot.run.arguments="users|friendships|accounts /path/to/file [spring arguments]"
+ * </pre>
+ */
+public class BulkImport {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BulkImport users|friendships|accounts <file> [spring arguments]");
+            System.exit(2);
+        }
+
+        ImportKind kind = ImportKind.valueOf(args[0].toUpperCase());
+        Path file = Path.of(args[1]);
+        String fileName = file.getFileName().toString();
+        ImportFormat format = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl")
+                ? ImportFormat.NDJSON
+                : ImportFormat.CSV;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankApp.class)
+                .web(WebApplicationType.NONE)
+                .run(Arrays.copyOfRange(args, 2, args.length));
+             InputStream input = Files.newInputStream(file)) {
+
+            ImportReport report = context.getBean(BulkImporter.class).importRecords(kind, format, input);
+
+            System.out.printf("%s: rows=%d imported=%d rejected=%d time=%.1fs throughput=%.0f rows/s%n",
+                    report.getKind(), report.getRows(), report.getImported(), report.getRejected(),
+                    report.getSeconds(), report.getRowsPerSecond());
+            report.getRejections().forEach(rejection -> System.out.println("  " + rejection));
+        }
+    }
+}
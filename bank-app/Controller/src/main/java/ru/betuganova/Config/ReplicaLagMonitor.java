@@ -0,0 +1,82 @@
+package ru.betuganova.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Checks the replication lag of the replica every {@code bank.datasource.replica.lag-check-interval}.
+ * The replica is usable while the last check succeeded and the lag was at most {@code bank.datasource.replica.max-lag};
+ * otherwise read-only transactions fall back to the primary until a later check passes.
+ * The lag is exported as the {@code bank.datasource.replica.lag} gauge, and -1 when the replica is unreachable or
+ * isn't streaming from the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    /**
+     * A server that isn't a standby has no lag. A standby whose WAL receiver isn't streaming from the primary, or that
+     * hasn't received any WAL, can fall behind by any amount unnoticed, so its lag is unknown (NULL). A streaming
+     * standby that has replayed all received WAL is not behind, however old its last replayed transaction is.
+     * The receiver status is only visible to roles with {@code pg_read_all_stats}.
+     */
+    private static final String LAG_SQL = "SELECT CASE" +
+            " WHEN NOT pg_is_in_recovery() THEN 0" +
+            " WHEN pg_last_wal_receive_lsn() IS NULL" +
+            " OR NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL" +
+            " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0" +
+            " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource replicaDataSource;
+    private final Duration maxLag;
+    private volatile double lagSeconds = -1;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, MeterRegistry meterRegistry, Duration maxLag) {
+        this.replicaDataSource = replicaDataSource;
+        this.maxLag = maxLag;
+
+        Gauge.builder("bank.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replication lag of the replica, or -1 when it is unreachable or not streaming")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.datasource.replica.lag-check-interval:1s}")
+    public void check() {
+        boolean wasUsable = usable;
+
+        try (Connection connection = replicaDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+
+            resultSet.next();
+            double lag = resultSet.getDouble(1);
+            boolean known = !resultSet.wasNull();
+            lagSeconds = known ? lag : -1;
+            usable = known && lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            usable = false;
+        }
+
+        if (wasUsable != usable) {
+            if (usable) {
+                log.info("Replica is usable again, lag {} s", lagSeconds);
+            } else {
+                log.warn("Read-only transactions fall back to the primary, replica lag {} s", lagSeconds);
+            }
+        }
+    }
+}
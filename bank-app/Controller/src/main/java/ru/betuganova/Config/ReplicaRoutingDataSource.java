@@ -0,0 +1,60 @@
+package ru.betuganova.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes connections of read-only transactions to the replica while {@link ReplicaLagMonitor} reports it usable,
+ * and all other connections to the primary. The chosen target is counted in the
+ * {@code bank.datasource.routed} counter, tagged by target and by whether the transaction was read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final Counter toReplica;
+    private final Counter readOnlyToPrimary;
+    private final Counter readWriteToPrimary;
+
+    public ReplicaRoutingDataSource(DataSource primaryDataSource,
+                                    DataSource replicaDataSource,
+                                    ReplicaLagMonitor replicaLagMonitor,
+                                    MeterRegistry meterRegistry) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.toReplica = routedCounter(meterRegistry, REPLICA, true);
+        this.readOnlyToPrimary = routedCounter(meterRegistry, PRIMARY, true);
+        this.readWriteToPrimary = routedCounter(meterRegistry, PRIMARY, false);
+
+        setTargetDataSources(Map.of(PRIMARY, primaryDataSource, REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readWriteToPrimary.increment();
+            return PRIMARY;
+        }
+        if (!replicaLagMonitor.isUsable()) {
+            readOnlyToPrimary.increment();
+            return PRIMARY;
+        }
+
+        toReplica.increment();
+        return REPLICA;
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String target, boolean readOnly) {
+        return Counter.builder("bank.datasource.routed")
+                .description("Connections routed to the primary or the replica")
+                .tag("target", target)
+                .tag("read-only", Boolean.toString(readOnly))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.betuganova.Config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+
+/**
+ * Binds the session named by the {@value #SESSION_TOKEN_HEADER} header to the request thread.
+ * Requests without the header are handled anonymously; an unknown or expired token is rejected.
+ */
+@Component
+public class SessionInterceptor implements HandlerInterceptor {
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    private final CurrentUserManager currentUserManager;
+
+    @Autowired
+    public SessionInterceptor(CurrentUserManager currentUserManager) {
+        this.currentUserManager = currentUserManager;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String token = request.getHeader(SESSION_TOKEN_HEADER);
+
+        if (token != null) {
+            currentUserManager.bind(token);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        currentUserManager.unbind();
+    }
+}
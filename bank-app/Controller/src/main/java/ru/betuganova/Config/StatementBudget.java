@@ -0,0 +1,22 @@
+package ru.betuganova.Config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the maximum number of SQL statements one request to the annotated endpoint may execute,
+ * independent of the amount of data. Requests over the budget are logged and counted by
+ * {@link StatementCountInterceptor}, and {@code StatementBudgetTest} fails the build on them.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+    /**
+     * @return The maximum number of statements per request.
+     */
+    int value();
+}
@@ -0,0 +1,67 @@
+package ru.betuganova.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.betuganova.Util.StatementCounter;
+
+/**
+ * Counts the SQL statements of each request and records them in the {@code bank.http.statements}
+ * distribution summary, tagged with the HTTP method and the URI pattern of the endpoint.
+ * Requests over the {@link StatementBudget} of their endpoint are logged and counted in
+ * {@code bank.http.statements.over-budget}.
+ */
+@Slf4j
+@Component
+public class StatementCountInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public StatementCountInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementCounter.begin();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long statements = StatementCounter.end();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("bank.http.statements")
+                .description("SQL statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements);
+
+        StatementBudget budget = handler instanceof HandlerMethod handlerMethod
+                ? handlerMethod.getMethodAnnotation(StatementBudget.class)
+                : null;
+
+        if (budget != null && statements > budget.value()) {
+            log.warn("{} {} executed {} SQL statements, over its budget of {}",
+                    request.getMethod(), uri, statements, budget.value());
+            Counter.builder("bank.http.statements.over-budget")
+                    .description("Requests that executed more SQL statements than the budget of their endpoint")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
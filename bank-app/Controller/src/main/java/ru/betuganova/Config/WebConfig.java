@@ -0,0 +1,41 @@
+package ru.betuganova.Config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    /**
+     * Streams to the client for as long as it takes, so it must not hold the entity manager of the request,
+     * which keeps its database connection until the request completes.
+     */
+    private static final String TRANSACTIONS_EXPORT_PATH = "/bank-accounts/transactions/export";
+
+    private final SessionInterceptor sessionInterceptor;
+    private final StatementCountInterceptor statementCountInterceptor;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public WebConfig(SessionInterceptor sessionInterceptor,
+                     StatementCountInterceptor statementCountInterceptor,
+                     EntityManagerFactory entityManagerFactory) {
+        this.sessionInterceptor = sessionInterceptor;
+        this.statementCountInterceptor = statementCountInterceptor;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Replaces the open-in-view of Spring Boot (spring.jpa.open-in-view=false), which can't exclude paths.
+        OpenEntityManagerInViewInterceptor openEntityManagerInView = new OpenEntityManagerInViewInterceptor();
+        openEntityManagerInView.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(openEntityManagerInView).excludePathPatterns(TRANSACTIONS_EXPORT_PATH);
+
+        registry.addInterceptor(statementCountInterceptor);
+        registry.addInterceptor(sessionInterceptor);
+    }
+}
@@ -4,59 +4,115 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.betuganova.Config.StatementBudget;
 import ru.betuganova.Dto.BankAccountDto;
+import ru.betuganova.Dto.CursorPageDto;
+import ru.betuganova.Dto.DailyTotalDto;
 import ru.betuganova.Dto.TransactionDto;
+import ru.betuganova.Dto.TransferDto;
+import ru.betuganova.Dto.TransferResultDto;
 import ru.betuganova.Mapper.BankAccountDtoMapper;
+import ru.betuganova.Mapper.DailyTotalDtoMapper;
 import ru.betuganova.Mapper.TransactionDtoMapper;
+import ru.betuganova.Mapper.TransferDtoMapper;
+import ru.betuganova.Model.BankAccount;
+import ru.betuganova.Model.CursorPage;
+import ru.betuganova.Model.IdempotentResult;
+import ru.betuganova.Model.Transaction;
 import ru.betuganova.Service.AccountService.BankAccountService;
+import ru.betuganova.Service.IdempotencyStore.IdempotencyStore;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/bank-accounts")
 @Tag(name = "Bank Account Controller", description = "Operations related to bank accounts and transactions")
 public class BankAccountController {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV_HEADER = "id,transactionType,amount,accountId,createdAt";
+
     private final BankAccountService bankAccountService;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
     private final BankAccountDtoMapper bankAccountDtoMapper;
     private final TransactionDtoMapper transactionDtoMapper;
+    private final TransferDtoMapper transferDtoMapper;
+    private final DailyTotalDtoMapper dailyTotalDtoMapper;
 
     @Autowired
-    public BankAccountController(BankAccountService bankAccountService, BankAccountDtoMapper bankAccountDtoMapper) {
+    public BankAccountController(BankAccountService bankAccountService,
+                                 BankAccountDtoMapper bankAccountDtoMapper,
+                                 TransactionDtoMapper transactionDtoMapper,
+                                 TransferDtoMapper transferDtoMapper,
+                                 DailyTotalDtoMapper dailyTotalDtoMapper,
+                                 IdempotencyStore idempotencyStore,
+                                 ObjectMapper objectMapper) {
         this.bankAccountService = bankAccountService;
-        this.bankAccountDtoMapper = new BankAccountDtoMapper();
-        this.transactionDtoMapper = new TransactionDtoMapper();
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.bankAccountDtoMapper = bankAccountDtoMapper;
+        this.transactionDtoMapper = transactionDtoMapper;
+        this.transferDtoMapper = transferDtoMapper;
+        this.dailyTotalDtoMapper = dailyTotalDtoMapper;
     }
 
     @Operation(
             summary = "Create a bank account",
-            description = "Creates a new bank account with the specified initial balance"
+            description = "Creates a new bank account with the specified initial balance and returns its id"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bank account successfully created"),
             @ApiResponse(responseCode = "404", description = "User not found when creating bank account")
     })
+    @StatementBudget(4)
     @PostMapping
-    public ResponseEntity<?> createBankAccount(@RequestParam Double balance) {
-        bankAccountService.createBankAccount(balance);
-        return new ResponseEntity<>(HttpStatus.CREATED);
+    public ResponseEntity<Long> createBankAccount(@RequestParam Double balance) {
+        long accountId = bankAccountService.createBankAccount(balance);
+        return new ResponseEntity<>(accountId, HttpStatus.CREATED);
     }
 
     @Operation(
             summary = "Get balance",
-            description = "Returns the balance of a specific bank account"
+            description = "Returns the balance of a specific bank account, " +
+                    "or its balance at the given point in time when the ledger mode is enabled"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Balance retrieved successfully"),
-            @ApiResponse(responseCode = "404", description = "Bank account not found")
+            @ApiResponse(responseCode = "404", description = "Bank account not found"),
+            @ApiResponse(responseCode = "501", description = "Balance at a point in time requested without the ledger mode")
     })
+    @StatementBudget(2)
     @GetMapping("/{accountId}/balance")
-    public ResponseEntity<Double> getBalance(@PathVariable Long accountId) {
-        double balance = bankAccountService.getBalance(accountId);
+    public ResponseEntity<Double> getBalance(
+            @PathVariable Long accountId,
+            @RequestParam(name = "at", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at
+    ) {
+        double balance = at == null
+                ? bankAccountService.getBalance(accountId)
+                : bankAccountService.getBalanceAt(accountId, at);
         return new ResponseEntity<>(balance, HttpStatus.OK);
     }
 
@@ -67,14 +123,18 @@ public class BankAccountController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Replenishment successful"),
             @ApiResponse(responseCode = "404", description = "Bank account not found"),
+            @ApiResponse(responseCode = "422", description = "Idempotency key was used for another request"),
+            @ApiResponse(responseCode = "503", description = "Too many transactions are waiting to be recorded")
     })
+    @StatementBudget(2)
     @PostMapping("/{accountId}/replenishment")
-    public ResponseEntity<Double> replenish(
+    public ResponseEntity<?> replenish(
             @PathVariable Long accountId,
-            @RequestParam double amount
+            @RequestParam double amount,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        double newBalance = bankAccountService.replenish(accountId, amount);
-        return new ResponseEntity<>(newBalance, HttpStatus.OK);
+        return idempotent(idempotencyKey, "replenishment:" + accountId + ":" + amount,
+                () -> bankAccountService.replenish(accountId, amount));
     }
 
     @Operation(
@@ -84,15 +144,19 @@ public class BankAccountController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Withdrawal successful"),
             @ApiResponse(responseCode = "404", description = "Bank account not found"),
-            @ApiResponse(responseCode = "409", description = "Insufficient funds")
+            @ApiResponse(responseCode = "409", description = "Insufficient funds"),
+            @ApiResponse(responseCode = "422", description = "Idempotency key was used for another request"),
+            @ApiResponse(responseCode = "503", description = "Too many transactions are waiting to be recorded")
     })
+    @StatementBudget(3)
     @PostMapping("/{accountId}/withdrawal")
-    public ResponseEntity<Double> withdraw(
+    public ResponseEntity<?> withdraw(
             @PathVariable Long accountId,
-            @RequestParam Double amount
+            @RequestParam Double amount,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        double newBalance = bankAccountService.withdraw(accountId, amount);
-        return new ResponseEntity<>(newBalance, HttpStatus.OK);
+        return idempotent(idempotencyKey, "withdrawal:" + accountId + ":" + amount,
+                () -> bankAccountService.withdraw(accountId, amount));
     }
 
     @Operation(
@@ -101,63 +165,237 @@ public class BankAccountController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transfer successful"),
+            @ApiResponse(responseCode = "400", description = "Amount isn't positive or both accounts are the same"),
             @ApiResponse(responseCode = "404", description = "One or both bank accounts not found"),
-            @ApiResponse(responseCode = "409", description = "Insufficient funds or conflict during transfer")
+            @ApiResponse(responseCode = "409", description = "Insufficient funds or conflict during transfer"),
+            @ApiResponse(responseCode = "422", description = "Idempotency key was used for another request"),
+            @ApiResponse(responseCode = "503", description = "Too many transactions are waiting to be recorded")
     })
+    @StatementBudget(6)
     @PostMapping("/{accountIdFrom}/transfer/{accountIdTo}")
-    public ResponseEntity<Void> transfer(
+    public ResponseEntity<?> transfer(
             @PathVariable Long accountIdFrom,
             @PathVariable Long accountIdTo,
-            @RequestParam Double amount
+            @RequestParam Double amount,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
     ) {
-        bankAccountService.transferTo(accountIdFrom, accountIdTo, amount);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return idempotent(idempotencyKey, "transfer:" + accountIdFrom + ":" + accountIdTo + ":" + amount, () -> {
+            bankAccountService.transferTo(accountIdFrom, accountIdTo, amount);
+            return null;
+        });
+    }
+
+    @Operation(
+            summary = "Transfer money in batch",
+            description = "Applies a batch of transfers from the current user's accounts in one database transaction " +
+                    "and returns the result of every transfer in the order of the batch"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the per-transfer results"),
+            @ApiResponse(responseCode = "400", description = "Batch is larger than the allowed limit or has an empty element"),
+            @ApiResponse(responseCode = "503", description = "Too many transactions are waiting to be recorded")
+    })
+    @StatementBudget(5)
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<List<TransferResultDto>> transferBatch(@RequestBody List<TransferDto> transfers) {
+        List<TransferResultDto> results = bankAccountService.transferBatch(transfers
+                        .stream()
+                        .map(transferDtoMapper::toModel)
+                        .collect(Collectors.toList()))
+                .stream()
+                .map(transferDtoMapper::toDto)
+                .collect(Collectors.toList());
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
-    @Operation(summary = "Get accounts by user ID", description = "Returns all bank accounts belonging to a specific user by ID")
+    @Operation(
+            summary = "Get accounts by user ID",
+            description = "Returns a page of bank accounts belonging to a specific user by ID. " +
+                    "Transaction IDs are included only with includeTransactionIds=true. " +
+                    "Pass the returned nextCursor as 'after' to get the next page. " +
+                    "Answers 304 without loading the accounts if they match the If-None-Match ETag"
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Accounts retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "The accounts match the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
+    @StatementBudget(5)
     @GetMapping("/info/{id}")
-    public ResponseEntity<List<BankAccountDto>> getAccountsByUserId(@PathVariable Long id) {
-        List<BankAccountDto> accounts = bankAccountService.getAccountsByUserId(id)
-                .stream()
-                .map(bankAccountDtoMapper::toDto)
-                .collect(Collectors.toList());
+    public ResponseEntity<CursorPageDto<BankAccountDto>> getAccountsByUserId(
+            @PathVariable Long id,
+            @RequestParam(name = "after", defaultValue = "0") long after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit,
+            @RequestParam(name = "includeTransactionIds", defaultValue = "false") boolean includeTransactionIds,
+            WebRequest request
+    ) {
+        if (request.checkNotModified("\"accounts-" + id + "-" + bankAccountService.getAccountsVersion(id) + "\"")) {
+            return null;
+        }
 
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+        return new ResponseEntity<>(
+                toDto(bankAccountService.getAccountsByUserId(id, after, limit, includeTransactionIds)), HttpStatus.OK);
     }
 
-    @Operation(summary = "Get all accounts", description = "Returns all bank accounts in the system")
+    @Operation(
+            summary = "Get all accounts",
+            description = "Returns a page of all bank accounts in the system. " +
+                    "Transaction IDs are included only with includeTransactionIds=true. " +
+                    "Pass the returned nextCursor as 'after' to get the next page"
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "All accounts retrieved successfully")
     })
+    @StatementBudget(3)
     @GetMapping("/info")
-    public ResponseEntity<List<BankAccountDto>> getAccounts() {
-        List<BankAccountDto> accounts = bankAccountService.getAccounts()
-                .stream()
-                .map(bankAccountDtoMapper::toDto)
-                .collect(Collectors.toList());
-
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+    public ResponseEntity<CursorPageDto<BankAccountDto>> getAccounts(
+            @RequestParam(name = "after", defaultValue = "0") long after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit,
+            @RequestParam(name = "includeTransactionIds", defaultValue = "false") boolean includeTransactionIds
+    ) {
+        return new ResponseEntity<>(toDto(bankAccountService.getAccounts(after, limit, includeTransactionIds)), HttpStatus.OK);
     }
 
-    @Operation(summary = "Get transactions", description = "Returns all transactions filtered by type and/or account ID")
+    @Operation(
+            summary = "Get transactions",
+            description = "Returns a page of transactions of an account of the current user, optionally filtered " +
+                    "by type. Pass the returned nextCursor as 'after' to get the next page"
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transactions retrieved successfully"),
-            @ApiResponse(responseCode = "404", description = "No transactions found")
+            @ApiResponse(responseCode = "404", description = "Account not found or not owned by the current user")
     })
+    @StatementBudget(2)
     @GetMapping("/transactions")
-    public ResponseEntity<List<TransactionDto>> getTransactions(
+    public ResponseEntity<CursorPageDto<TransactionDto>> getTransactions(
             @RequestParam(name = "type", required = false) String type,
-            @RequestParam(name = "accountId", required = false) Long accountId
+            @RequestParam(name = "accountId", required = false) Long accountId,
+            @RequestParam(name = "after", defaultValue = "0") long after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit
     ) {
-        List<TransactionDto> transactions = bankAccountService.getTransactionsByTypeAndAccountId(type, (accountId != null) ? accountId : 0)
+        CursorPage<Transaction> page = bankAccountService.getTransactionsByTypeAndAccountId(
+                type, (accountId != null) ? accountId : 0, after, limit);
+
+        List<TransactionDto> transactions = page.getItems()
                 .stream()
                 .map(transactionDtoMapper::toDto)
                 .collect(Collectors.toList());
 
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+        return new ResponseEntity<>(new CursorPageDto<>(transactions, page.getNextCursor()), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Export transactions",
+            description = "Streams the whole transaction history of an account, optionally filtered by type, " +
+                    "as NDJSON (format=ndjson) or CSV with a header line (format=csv)"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions streamed successfully"),
+            @ApiResponse(responseCode = "404", description = "Bank account not found")
+    })
+    // Every further page of 1000 exported transactions adds a statement.
+    @StatementBudget(2)
+    @GetMapping("/transactions/export")
+    public void exportTransactions(
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "accountId") long accountId,
+            @RequestParam(name = "format", defaultValue = "ndjson") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        boolean csv = format.equalsIgnoreCase("csv");
+
+        response.setContentType(csv ? "text/csv" : NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions-" + accountId + (csv ? ".csv" : ".ndjson") + "\"");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        bankAccountService.exportTransactions(type, accountId, transaction -> {
+            try {
+                writer.write(csv ? toCsv(transaction) : toJson(transactionDtoMapper.toDto(transaction)));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+    }
+
+    @Operation(
+            summary = "Get daily totals",
+            description = "Returns the totals and numbers of transactions of an account by UTC day and " +
+                    "transaction type for the days from 'from' to 'to' inclusive. Days without transactions are omitted"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Daily totals retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "The range ends before it starts"),
+            @ApiResponse(responseCode = "404", description = "Bank account not found")
+    })
+    @StatementBudget(1)
+    @GetMapping("/{accountId}/daily-totals")
+    public ResponseEntity<List<DailyTotalDto>> getDailyTotals(
+            @PathVariable Long accountId,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        List<DailyTotalDto> totals = bankAccountService.getDailyTotals(accountId, from, to)
+                .stream()
+                .map(dailyTotalDtoMapper::toDto)
+                .collect(Collectors.toList());
+
+        return new ResponseEntity<>(totals, HttpStatus.OK);
+    }
+
+    private CursorPageDto<BankAccountDto> toDto(CursorPage<BankAccount> page) {
+        List<BankAccountDto> accounts = page.getItems()
+                .stream()
+                .map(bankAccountDtoMapper::toDto)
+                .collect(Collectors.toList());
+
+        return new CursorPageDto<>(accounts, page.getNextCursor());
+    }
+
+    /**
+     * Performs a money-moving request at most once per idempotency key of the current user.
+     * Without a key the request is simply performed. A replayed result is marked with the Idempotent-Replayed header.
+     */
+    private ResponseEntity<?> idempotent(String idempotencyKey, String fingerprint, Supplier<Object> action) {
+        if (idempotencyKey == null) {
+            return new ResponseEntity<>(action.get(), HttpStatus.OK);
+        }
+
+        IdempotentResult result = idempotencyStore.execute(idempotencyKey, fingerprint,
+                () -> new IdempotentResult(HttpStatus.OK.value(), toJson(action.get()), false));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(result.getStatus())
+                .header(IDEMPOTENT_REPLAYED_HEADER, Boolean.toString(result.isReplayed()));
+
+        return result.getBody() == null
+                ? response.build()
+                : response.contentType(MediaType.APPLICATION_JSON).body(result.getBody());
+    }
+
+    private static String toCsv(Transaction transaction) {
+        return transaction.getId() + "," + transaction.getTransactionType() + "," + transaction.getAmount() + ","
+                + transaction.getAccountId() + "," + transaction.getCreatedAt();
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -8,11 +8,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.betuganova.Config.StatementBudget;
+import ru.betuganova.Dto.CursorPageDto;
 import ru.betuganova.Dto.UserDto;
 import ru.betuganova.Mapper.UserDtoMapper;
+import ru.betuganova.Model.CursorPage;
 import ru.betuganova.Model.HairColor;
+import ru.betuganova.Model.User;
 import ru.betuganova.Service.UserService.UserService;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +40,7 @@ public class UserController {
             @ApiResponse(responseCode = "200", description = "User created successfully"),
             @ApiResponse(responseCode = "409", description = "User with the same login already exists")
     })
+    @StatementBudget(3)
     @PostMapping
     public ResponseEntity<?> createUser(
             @RequestParam String login,
@@ -47,16 +55,18 @@ public class UserController {
 
     @Operation(
             summary = "Login user",
-            description = "Logs in a user by their login"
+            description = "Logs in a user by their login and returns a session token. " +
+                    "Send the token in the X-Session-Token header of the following requests"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User logged in successfully"),
             @ApiResponse(responseCode = "404", description = "User with the given login was not found")
     })
+    @StatementBudget(2)
     @PostMapping("/login")
     public ResponseEntity<String> login(@RequestParam String login) {
-        userService.login(login);
-        return new ResponseEntity<>(HttpStatus.OK);
+        String token = userService.login(login);
+        return new ResponseEntity<>(token, HttpStatus.OK);
     }
 
     @Operation(
@@ -66,6 +76,7 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User logged out successfully")
     })
+    @StatementBudget(0)
     @PostMapping("/logout")
     public ResponseEntity<String> logout() {
         userService.logout();
@@ -78,6 +89,7 @@ public class UserController {
             @ApiResponse(responseCode = "404", description = "Friend not found"),
             @ApiResponse(responseCode = "409", description = "Friend already in the friend list or other conflict")
     })
+    @StatementBudget(6)
     @PostMapping("/add-friend")
     public ResponseEntity<?> addFriend(@RequestParam String friendLogin) {
         userService.addFriend(friendLogin);
@@ -92,46 +104,81 @@ public class UserController {
             @ApiResponse(responseCode = "200", description = "Friend successfully deleted"),
             @ApiResponse(responseCode = "404", description = "Friend with the given login was not found")
     })
+    @StatementBudget(5)
     @DeleteMapping("/delete-friend")
     public ResponseEntity<?> deleteFriend(@RequestParam String friendLogin) {
         userService.deleteFriend(friendLogin);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
-    @Operation(summary = "Get user info", description = "Returns information about the currently logged-in user")
+    @Operation(
+            summary = "Get user info",
+            description = "Returns information about the currently logged-in user, " +
+                    "or 304 if it matches the If-None-Match ETag"
+    )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved user information")
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved user information"),
+            @ApiResponse(responseCode = "304", description = "User information matches the If-None-Match ETag")
     })
+    @StatementBudget(3)
     @GetMapping("/info")
-    public ResponseEntity<UserDto> getInfo() {
-        UserDto user = userDtoMapper.toDto(userService.getUserInfo());
+    public ResponseEntity<UserDto> getInfo(WebRequest request) {
+        User currentUser = userService.getUserInfo();
+        String login = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(currentUser.getLogin().getBytes(StandardCharsets.UTF_8));
+
+        if (request.checkNotModified("\"user-" + login + "-" + currentUser.getVersion() + "\"")) {
+            return null;
+        }
+
+        UserDto user = userDtoMapper.toDto(currentUser);
         return new ResponseEntity<>(user, HttpStatus.OK);
     }
 
-    @Operation(summary = "Get users", description = "Retrieves all users filtered by optional hair color and gender")
+    @Operation(
+            summary = "Get users",
+            description = "Returns a page of users filtered by optional hair color and gender, without friend lists. " +
+                    "Pass the returned nextCursor as 'after' to get the next page"
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of users")
     })
+    @StatementBudget(1)
     @GetMapping
-    public ResponseEntity<List<UserDto>> getUsers(
+    public ResponseEntity<CursorPageDto<UserDto>> getUsers(
             @RequestParam(name = "hairColor", required = false) String hairColor,
-            @RequestParam(name = "gender", required = false) Integer gender
+            @RequestParam(name = "gender", required = false) Integer gender,
+            @RequestParam(name = "after", defaultValue = "0") long after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit
     ) {
-        List<UserDto> users = userService.getUsersByHairColorAndGender(hairColor, (gender != null) ? gender : 0)
+        CursorPage<User> page = userService.getUsersByHairColorAndGender(
+                hairColor, (gender != null) ? gender : 0, after, limit);
+
+        List<UserDto> users = page.getItems()
                 .stream()
                 .map(userDtoMapper::toDto)
                 .collect(Collectors.toList());
 
-        return new ResponseEntity<>(users, HttpStatus.OK);
+        return new ResponseEntity<>(new CursorPageDto<>(users, page.getNextCursor()), HttpStatus.OK);
     }
 
-    @Operation(summary = "Get user's friends", description = "Returns a list of friends for a given user by ID")
+    @Operation(
+            summary = "Get user's friends",
+            description = "Returns a list of friends for a given user by ID. " +
+                    "Answers 304 without loading the friends if the list matches the If-None-Match ETag"
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of user's friends"),
+            @ApiResponse(responseCode = "304", description = "The friend list matches the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "User with the given ID not found")
     })
+    @StatementBudget(4)
     @GetMapping("/{id}/friends")
-    public ResponseEntity<List<UserDto>> getUserFriends(@PathVariable Long id) {
+    public ResponseEntity<List<UserDto>> getUserFriends(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified("\"friends-" + id + "-" + userService.getFriendsVersion(id) + "\"")) {
+            return null;
+        }
+
         List<UserDto> users = userService.getFriendsById(id)
                 .stream()
                 .map(userDtoMapper::toDto)
@@ -1,5 +1,6 @@
 package ru.betuganova.Dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -15,6 +16,7 @@ import java.util.ArrayList;
 public class BankAccountDto {
     private Long id;
     private Long userId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private ArrayList<Long> transactionIdHistory;
     private double balance;
 
@@ -0,0 +1,21 @@
+package ru.betuganova.Dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.betuganova.Model.TransactionType;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the dto of the total of one type of transactions of a bank account on one UTC day.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailyTotalDto {
+    private LocalDate day;
+    private TransactionType transactionType;
+    private double totalAmount;
+    private long transactionCount;
+}
@@ -5,6 +5,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import ru.betuganova.Model.TransactionType;
 
+import java.time.Instant;
+
 /**
  * Represents a financial transaction dto associated with a bank account.
  */
@@ -12,9 +14,11 @@ import ru.betuganova.Model.TransactionType;
 @Setter
 @NoArgsConstructor
 public class TransactionDto {
+    private Long id;
     private TransactionType transactionType;
     private double amount;
     private Long accountId;
+    private Instant createdAt;
 
     /**
      * Creates a new transaction with the specified type and amount.
@@ -0,0 +1,17 @@
+package ru.betuganova.Dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Represents a single money transfer dto in a batch request.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TransferDto {
+    private Long accountIdFrom;
+    private Long accountIdTo;
+    private double amount;
+}
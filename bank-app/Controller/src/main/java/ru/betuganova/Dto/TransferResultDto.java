@@ -0,0 +1,20 @@
+package ru.betuganova.Dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.betuganova.Model.TransferStatus;
+
+/**
+ * Represents the result dto of a single transfer in a batch.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TransferResultDto {
+    private Long accountIdFrom;
+    private Long accountIdTo;
+    private double amount;
+    private TransferStatus status;
+    private String message;
+}
@@ -0,0 +1,43 @@
+package ru.betuganova;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.betuganova.Service.Ledger.Ledger;
+
+import java.util.Arrays;
+
+/**
+ * Command line entry point of the ledger mode conversion. Starts the application without the web server and
+ * converts the stored data into or out of the ledger mode; the application refuses to start while its
+ * {@code bank.ledger.enabled} doesn't match the stored data. Stop every instance before the conversion and start
+ * them with the new mode afterwards. Further arguments are passed to Spring, e.g. {@code --spring.datasource.url=...}.
+ *
+ * <pre>
+ * mvn -pl Controller org.springframework.boot:spring-boot-maven-plugin:3.4.4:run \
+ *     -Dspring-boot.run.main-class=ru.betuganova.LedgerMode \
+ *     -Dspring-boot.run.arguments="enable|disable [spring arguments]"
+ * </pre>
+ */
+public class LedgerMode {
+    public static void main(String[] args) {
+        if (args.length < 1 || !args[0].equals("enable") && !args[0].equals("disable")) {
+            System.err.println("Usage: LedgerMode enable|disable [spring arguments]");
+            System.exit(2);
+        }
+
+        boolean enable = args[0].equals("enable");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("bank.ledger.verify-on-startup=false")
+                .run(Arrays.copyOfRange(args, 1, args.length))) {
+
+            Ledger ledger = context.getBean(Ledger.class);
+            int accounts = enable ? ledger.startLedgers() : ledger.foldLedgers();
+
+            System.out.printf("%s: %d accounts converted%n", enable ? "Ledger mode enabled" : "Ledger mode disabled",
+                    accounts);
+        }
+    }
+}
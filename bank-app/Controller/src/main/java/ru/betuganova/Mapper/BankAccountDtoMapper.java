@@ -1,23 +1,32 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 import ru.betuganova.Dto.BankAccountDto;
 import ru.betuganova.Model.BankAccount;
 
 @Component
 public class BankAccountDtoMapper {
-    private final ModelMapper modelMapper;
+    public BankAccountDto toDto(BankAccount bankAccount) {
+        if (bankAccount == null) return null;
 
-    public BankAccountDtoMapper() {
-        this.modelMapper = new ModelMapper();
-    }
+        BankAccountDto dto = new BankAccountDto();
+        dto.setId(bankAccount.getId());
+        dto.setUserId(bankAccount.getUserId());
+        dto.setTransactionIdHistory(bankAccount.getTransactionIdHistory());
+        dto.setBalance(bankAccount.getBalance());
 
-    public BankAccountDto toDto(BankAccount bankAccount) {
-        return bankAccount == null ? null : modelMapper.map(bankAccount, BankAccountDto.class);
+        return dto;
     }
 
     public BankAccount toModel(BankAccountDto bankAccount) {
-        return bankAccount == null ? null : modelMapper.map(bankAccount, BankAccount.class);
+        if (bankAccount == null) return null;
+
+        BankAccount model = new BankAccount();
+        model.setId(bankAccount.getId());
+        model.setUserId(bankAccount.getUserId());
+        model.setTransactionIdHistory(bankAccount.getTransactionIdHistory());
+        model.setBalance(bankAccount.getBalance());
+
+        return model;
     }
 }
@@ -0,0 +1,20 @@
+package ru.betuganova.Mapper;
+
+import org.springframework.stereotype.Component;
+import ru.betuganova.Dto.DailyTotalDto;
+import ru.betuganova.Model.DailyTotal;
+
+@Component
+public class DailyTotalDtoMapper {
+    public DailyTotalDto toDto(DailyTotal total) {
+        if (total == null) return null;
+
+        DailyTotalDto dto = new DailyTotalDto();
+        dto.setDay(total.getDay());
+        dto.setTransactionType(total.getTransactionType());
+        dto.setTotalAmount(total.getTotalAmount());
+        dto.setTransactionCount(total.getTransactionCount());
+
+        return dto;
+    }
+}
@@ -1,23 +1,34 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 import ru.betuganova.Dto.TransactionDto;
 import ru.betuganova.Model.Transaction;
 
 @Component
 public class TransactionDtoMapper {
-    private final ModelMapper modelMapper;
+    public TransactionDto toDto(Transaction transaction) {
+        if (transaction == null) return null;
 
-    public TransactionDtoMapper() {
-        this.modelMapper = new ModelMapper();
-    }
+        TransactionDto dto = new TransactionDto();
+        dto.setId(transaction.getId());
+        dto.setTransactionType(transaction.getTransactionType());
+        dto.setAmount(transaction.getAmount());
+        dto.setAccountId(transaction.getAccountId());
+        dto.setCreatedAt(transaction.getCreatedAt());
 
-    public TransactionDto toDto(Transaction transaction) {
-        return transaction == null ? null : modelMapper.map(transaction, TransactionDto.class);
+        return dto;
     }
 
     public Transaction toModel(TransactionDto transaction) {
-        return transaction == null ? null : modelMapper.map(transaction, Transaction.class);
+        if (transaction == null) return null;
+
+        Transaction model = new Transaction();
+        model.setId(transaction.getId());
+        model.setTransactionType(transaction.getTransactionType());
+        model.setAmount(transaction.getAmount());
+        model.setAccountId(transaction.getAccountId());
+        model.setCreatedAt(transaction.getCreatedAt());
+
+        return model;
     }
 }
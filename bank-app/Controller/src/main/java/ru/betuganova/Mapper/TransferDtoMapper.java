@@ -0,0 +1,29 @@
+package ru.betuganova.Mapper;
+
+import org.springframework.stereotype.Component;
+import ru.betuganova.Dto.TransferDto;
+import ru.betuganova.Dto.TransferResultDto;
+import ru.betuganova.Model.Transfer;
+import ru.betuganova.Model.TransferResult;
+
+@Component
+public class TransferDtoMapper {
+    public Transfer toModel(TransferDto transfer) {
+        if (transfer == null) return null;
+
+        return new Transfer(transfer.getAccountIdFrom(), transfer.getAccountIdTo(), transfer.getAmount());
+    }
+
+    public TransferResultDto toDto(TransferResult result) {
+        if (result == null) return null;
+
+        TransferResultDto dto = new TransferResultDto();
+        dto.setAccountIdFrom(result.getAccountIdFrom());
+        dto.setAccountIdTo(result.getAccountIdTo());
+        dto.setAmount(result.getAmount());
+        dto.setStatus(result.getStatus());
+        dto.setMessage(result.getMessage());
+
+        return dto;
+    }
+}
@@ -1,51 +1,49 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.Converter;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 import ru.betuganova.Dto.UserDto;
 import ru.betuganova.Model.User;
 
 @Component
 public class UserDtoMapper {
-    private final ModelMapper modelMapper;
+    public UserDto toDto(User user) {
+        if (user == null) return null;
+
+        UserDto dto = new UserDto();
+        dto.setLogin(user.getLogin());
+        dto.setName(user.getName());
+        dto.setAge(user.getAge());
+        dto.setGender(toGenderString(user.getGender()));
+        dto.setHairColor(user.getHairColor());
+        dto.setFriends(user.getFriends());
 
-    public UserDtoMapper() {
-        this.modelMapper = new ModelMapper();
-        configureMappings();
+        return dto;
     }
 
-    private void configureMappings() {
-        Converter<Integer, String> toGenderString = ctx -> {
-            Integer gender = ctx.getSource();
-            if (gender == null) return "Undetermined";
-            if (gender == 1) return "Male";
-            if (gender == 2) return "Female";
-            return "Undetermined";
-        };
-
-        Converter<String, Integer> toGenderInt = ctx -> {
-            String gender = ctx.getSource();
-            if (gender == null) return 0;
-            if (gender.equalsIgnoreCase("Male")) return 1;
-            if (gender.equalsIgnoreCase("Female")) return 2;
-            return 0;
-        };
-
-        modelMapper.typeMap(User.class, UserDto.class).addMappings(mapper ->
-                mapper.using(toGenderString).map(User::getGender, UserDto::setGender)
-        );
-
-        modelMapper.typeMap(UserDto.class, User.class).addMappings(mapper ->
-                mapper.using(toGenderInt).map(UserDto::getGender, User::setGender)
-        );
+    public User toModel(UserDto user) {
+        if (user == null) return null;
+
+        User model = new User();
+        model.setLogin(user.getLogin());
+        model.setName(user.getName());
+        model.setAge(user.getAge());
+        model.setGender(toGenderInt(user.getGender()));
+        model.setHairColor(user.getHairColor());
+        model.setFriends(user.getFriends());
+
+        return model;
     }
 
-    public UserDto toDto(User user) {
-        return user == null ? null : modelMapper.map(user, UserDto.class);
+    private static String toGenderString(int gender) {
+        if (gender == 1) return "Male";
+        if (gender == 2) return "Female";
+        return "Undetermined";
     }
 
-    public User toModel(UserDto user) {
-        return user == null ? null : modelMapper.map(user, User.class);
+    private static int toGenderInt(String gender) {
+        if (gender == null) return 0;
+        if (gender.equalsIgnoreCase("Male")) return 1;
+        if (gender.equalsIgnoreCase("Female")) return 2;
+        return 0;
     }
 }
@@ -0,0 +1,127 @@
+package ru.betuganova.Config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.betuganova.WebTestEnvironment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that concurrent clients with distinct sessions only ever see their own user. The clients outnumber the
+ * request threads of the server, so every server thread serves requests of many sessions one after another, and
+ * anonymous requests are interleaved to catch a session left bound to a thread by a previous request.
+ */
+class SessionIsolationTest {
+    private static final int CLIENTS = 32;
+    private static final int SERVER_THREADS = 4;
+    private static final int ROUNDS = 50;
+
+    private static WebTestEnvironment environment;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @BeforeAll
+    static void startEnvironment() throws IOException {
+        environment = WebTestEnvironment.start(Map.of("server.tomcat.threads.max", SERVER_THREADS));
+        environment.seed(CLIENTS, 1, 0);
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        if (environment != null) {
+            environment.close();
+        }
+    }
+
+    @Test
+    void concurrentRequestsOnlySeeTheirOwnUser() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> clients = new ArrayList<>();
+
+        try {
+            for (int client = 1; client <= CLIENTS; client++) {
+                String login = "user" + client;
+                String token = send("POST", "/users/login?login=" + login, null).body();
+                long ownAccountId = environment.accountIdOf(login);
+                long foreignAccountId = environment.accountIdOf("user" + (client % CLIENTS + 1));
+
+                clients.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        checkRound(login, token, ownAccountId, foreignAccountId);
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(failures.isEmpty(), failures.size() + " requests saw another session, first: " + failures.peek());
+    }
+
+    private void checkRound(String login, String token, long ownAccountId, long foreignAccountId) throws Exception {
+        HttpResponse<String> info = send("GET", "/users/info", token);
+        if (info.statusCode() != 200) {
+            failures.add(login + " got " + info.statusCode() + " for its info: " + info.body());
+        } else {
+            String seenLogin = objectMapper.readTree(info.body()).path("login").asText();
+            if (!login.equals(seenLogin)) {
+                failures.add(login + " saw the info of " + seenLogin);
+            }
+        }
+
+        expectStatus(login, "/bank-accounts/" + ownAccountId + "/balance", token, 200);
+        expectStatus(login, "/bank-accounts/" + foreignAccountId + "/balance", token, 404);
+        expectStatus("anonymous client after " + login, "/users/info", null, 401);
+    }
+
+    private void expectStatus(String client, String path, String token, int status) throws Exception {
+        HttpResponse<String> response = send("GET", path, token);
+        if (response.statusCode() != status) {
+            failures.add(client + " got " + response.statusCode() + " instead of " + status + " for " + path);
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(environment.baseUrl() + path))
+                .timeout(Duration.ofSeconds(60))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (token != null) {
+            request.header(SessionInterceptor.SESSION_TOKEN_HEADER, token);
+        }
+
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if ("POST".equals(method)) {
+            assertEquals(200, response.statusCode(), method + " " + path + ": " + response.body());
+        }
+        return response;
+    }
+}
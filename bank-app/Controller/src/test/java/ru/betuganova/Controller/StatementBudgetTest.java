@@ -0,0 +1,237 @@
+package ru.betuganova.Controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import ru.betuganova.Config.SessionInterceptor;
+import ru.betuganova.Config.StatementBudget;
+import ru.betuganova.Service.Ledger.Ledger;
+import ru.betuganova.WebTestEnvironment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statement-count regression test of the HTTP endpoints. For every mode and data size the web app is started against
+ * a fresh embedded PostgreSQL instance, the database is seeded, and every {@code UserController} and
+ * {@code BankAccountController} endpoint is called once. The statements of each call are read from the
+ * {@code bank.http.statements} metric. The test fails if an endpoint has no {@link StatementBudget} or no call below,
+ * goes over its budget in any mode, or needs more statements at a larger data size than at the smallest one.
+ */
+class StatementBudgetTest {
+    /** Users, friends per user and transactions per account of every run. */
+    private static final int[][] DATA_SIZES = {{10, 2, 1}, {100, 5, 10}, {1000, 10, 100}};
+
+    /** The properties of every mode the budgets have to hold in. */
+    private static final Map<String, Map<String, Object>> MODES = new TreeMap<>(Map.of(
+            "default", Map.of(),
+            "ledger", Map.of("bank.ledger.enabled", "true"),
+            "optimistic", Map.of("bank.accounts.locking", "OPTIMISTIC"),
+            "write-behind", Map.of("bank.transactions.write-behind.enabled", "true")));
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<String> failures = new ArrayList<>();
+    private final Map<String, Integer> budgets = new TreeMap<>();
+    /** The statements of every call by endpoint and mode. */
+    private final Map<String, Map<String, List<Long>>> statements = new TreeMap<>();
+
+    @Test
+    void endpointsStayWithinTheirStatementBudgets() throws Exception {
+        for (Map.Entry<String, Map<String, Object>> mode : MODES.entrySet()) {
+            for (int[] size : DATA_SIZES) {
+                run(mode.getKey(), mode.getValue(), size[0], size[1], size[2]);
+            }
+        }
+
+        String report = report();
+        assertTrue(failures.isEmpty(), String.join("\n", failures) + "\n" + report);
+    }
+
+    private void run(String mode, Map<String, Object> properties,
+                     int users, int friendsPerUser, int transactionsPerAccount) throws Exception {
+
+        try (WebTestEnvironment environment = WebTestEnvironment.start(properties)) {
+            environment.seed(users, friendsPerUser, transactionsPerAccount);
+            if (environment.bean(Ledger.class).isEnabled()) {
+                environment.bean(Ledger.class).startLedgers();
+            }
+            collectBudgets(environment);
+
+            Client client = new Client(environment, mode);
+            long userId = environment.userIdOf("user1");
+            long accountFrom = environment.accountIdOf("user1");
+            long accountTo = environment.accountIdOf("user2");
+            String stranger = "user" + users;
+
+            client.call("POST", "/users", "/users?login=budget&name=Budget&age=30&gender=Male&hairColor=BLACK");
+            client.token = client.call("POST", "/users/login", "/users/login?login=user1");
+            // As if another session of user1 had changed it, so the session's copy is reloaded.
+            environment.jdbc().update("UPDATE users SET version = version + 1 WHERE login = 'user1'");
+            client.call("GET", "/users/info", "/users/info");
+            client.call("GET", "/users", "/users?hairColor=BLACK&limit=100");
+            client.call("GET", "/users/{id}/friends", "/users/" + userId + "/friends");
+            client.call("POST", "/users/add-friend", "/users/add-friend?friendLogin=" + stranger);
+            client.call("DELETE", "/users/delete-friend", "/users/delete-friend?friendLogin=" + stranger);
+
+            client.call("POST", "/bank-accounts", "/bank-accounts?balance=100");
+            client.call("GET", "/bank-accounts/{accountId}/balance", "/bank-accounts/" + accountFrom + "/balance");
+            client.call("POST", "/bank-accounts/{accountId}/replenishment",
+                    "/bank-accounts/" + accountFrom + "/replenishment?amount=10");
+            client.call("POST", "/bank-accounts/{accountId}/withdrawal",
+                    "/bank-accounts/" + accountFrom + "/withdrawal?amount=5");
+            client.call("POST", "/bank-accounts/{accountIdFrom}/transfer/{accountIdTo}",
+                    "/bank-accounts/" + accountFrom + "/transfer/" + accountTo + "?amount=1");
+            client.call("POST", "/bank-accounts/transfers/batch", "/bank-accounts/transfers/batch",
+                    "[{\"accountIdFrom\":" + accountFrom + ",\"accountIdTo\":" + accountTo + ",\"amount\":1}," +
+                            "{\"accountIdFrom\":" + accountFrom + ",\"accountIdTo\":" + accountTo + ",\"amount\":2}]");
+            client.call("GET", "/bank-accounts/info/{id}",
+                    "/bank-accounts/info/" + userId + "?includeTransactionIds=true");
+            client.call("GET", "/bank-accounts/info", "/bank-accounts/info?limit=100&includeTransactionIds=true");
+            client.call("GET", "/bank-accounts/transactions",
+                    "/bank-accounts/transactions?accountId=" + accountFrom + "&limit=100");
+            client.call("GET", "/bank-accounts/transactions/export",
+                    "/bank-accounts/transactions/export?accountId=" + accountFrom);
+            client.call("GET", "/bank-accounts/{accountId}/daily-totals",
+                    "/bank-accounts/" + accountFrom + "/daily-totals?from=2000-01-01&to=2100-12-31");
+
+            client.call("POST", "/users/logout", "/users/logout");
+        }
+    }
+
+    private void collectBudgets(WebTestEnvironment environment) {
+        RequestMappingHandlerMapping mapping =
+                environment.bean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping.getHandlerMethods().entrySet()) {
+            Class<?> controller = entry.getValue().getBeanType();
+            if (controller != UserController.class && controller != BankAccountController.class) {
+                continue;
+            }
+
+            StatementBudget budget = entry.getValue().getMethodAnnotation(StatementBudget.class);
+            for (String pattern : entry.getKey().getPatternValues()) {
+                entry.getKey().getMethodsCondition().getMethods().forEach(method -> {
+                    String endpoint = method + " " + pattern;
+                    budgets.put(endpoint, budget == null ? null : budget.value());
+                    statements.putIfAbsent(endpoint, new TreeMap<>());
+                });
+            }
+        }
+    }
+
+    /**
+     * Checks the collected statement counts against the budgets.
+     *
+     * @return The budget and the statement counts of every endpoint.
+     */
+    private String report() {
+        StringBuilder report = new StringBuilder();
+
+        for (Map.Entry<String, Integer> entry : budgets.entrySet()) {
+            String endpoint = entry.getKey();
+            Map<String, List<Long>> countsByMode = statements.get(endpoint);
+
+            if (entry.getValue() == null) {
+                failures.add(endpoint + " has no @StatementBudget");
+            }
+            for (String mode : MODES.keySet()) {
+                List<Long> counts = countsByMode.getOrDefault(mode, List.of());
+
+                if (counts.size() != DATA_SIZES.length) {
+                    failures.add(endpoint + " isn't called by the test in the " + mode + " mode");
+                } else if (entry.getValue() != null) {
+                    long max = counts.stream().mapToLong(Long::longValue).max().orElse(0);
+                    if (max > entry.getValue()) {
+                        failures.add(endpoint + " executed " + max + " statements in the " + mode +
+                                " mode, over its budget of " + entry.getValue());
+                    }
+                    if (max > counts.get(0)) {
+                        failures.add(endpoint + " statements grow with the data in the " + mode + " mode: " + counts);
+                    }
+                }
+            }
+
+            report.append(String.format("%-60s budget=%-4s statements=%s%n", endpoint, entry.getValue(), countsByMode));
+        }
+
+        return report.toString();
+    }
+
+    private final class Client {
+        private final MeterRegistry meterRegistry;
+        private final String baseUrl;
+        private final String mode;
+        private String token;
+
+        private Client(WebTestEnvironment environment, String mode) {
+            this.meterRegistry = environment.bean(MeterRegistry.class);
+            this.baseUrl = environment.baseUrl();
+            this.mode = mode;
+        }
+
+        private String call(String method, String pattern, String path) throws Exception {
+            return call(method, pattern, path, null);
+        }
+
+        /**
+         * Sends one request and records the statements it executed under the given endpoint.
+         */
+        private String call(String method, String pattern, String path, String json) throws Exception {
+            DistributionSummary summary = meterRegistry.find("bank.http.statements")
+                    .tags("method", method, "uri", pattern)
+                    .summary();
+            long countBefore = summary == null ? 0 : summary.count();
+            double totalBefore = summary == null ? 0 : summary.totalAmount();
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .method(method, json == null
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofString(json));
+            if (json != null) {
+                request.header("Content-Type", "application/json");
+            }
+            if (token != null) {
+                request.header(SessionInterceptor.SESSION_TOKEN_HEADER, token);
+            }
+
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            String endpoint = method + " " + pattern;
+            if (response.statusCode() / 100 != 2) {
+                failures.add(endpoint + " returned " + response.statusCode() + " in the " + mode + " mode: " +
+                        response.body());
+                return null;
+            }
+
+            // The count is recorded after the response is complete, so it may arrive slightly after the client is done.
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while ((summary = meterRegistry.find("bank.http.statements")
+                    .tags("method", method, "uri", pattern)
+                    .summary()) == null || summary.count() == countBefore) {
+                if (System.nanoTime() > deadline) {
+                    failures.add(endpoint + " didn't record its statements");
+                    return response.body();
+                }
+                Thread.sleep(1);
+            }
+
+            statements.computeIfAbsent(endpoint, key -> new TreeMap<>())
+                    .computeIfAbsent(mode, key -> new ArrayList<>())
+                    .add(Math.round(summary.totalAmount() - totalBefore));
+
+            return response.body();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.betuganova.Controller;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.betuganova.Config.SessionInterceptor;
+import ru.betuganova.WebTestEnvironment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that only the owner of an account can read or export its transactions, and that a client reading
+ * the export slowly doesn't keep a database connection busy.
+ */
+class TransactionExportTest {
+    private static final int TRANSACTIONS = 200_000;
+
+    private static WebTestEnvironment environment;
+    private static long accountId;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startEnvironment() throws IOException {
+        environment = WebTestEnvironment.start(Map.of());
+        environment.seed(2, 1, 0);
+        accountId = environment.accountIdOf("user1");
+        environment.jdbc().update("""
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT 'REPLENISHMENT', 1, ? FROM generate_series(1, ?)
+                """, accountId, TRANSACTIONS);
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        if (environment != null) {
+            environment.close();
+        }
+    }
+
+    @Test
+    void otherUsersCantExportTheAccount() throws Exception {
+        HttpResponse<String> response = httpClient.send(exportRequest(login("user2")),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(404, response.statusCode());
+    }
+
+    @Test
+    void otherUsersCantReadTheTransactions() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(
+                        environment.baseUrl() + "/bank-accounts/transactions?accountId=" + accountId))
+                .header(SessionInterceptor.SESSION_TOKEN_HEADER, login("user2"))
+                .build();
+
+        assertEquals(404, httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void slowClientDoesntHoldAConnection() throws Exception {
+        HttpResponse<InputStream> response = httpClient.send(exportRequest(login("user1")),
+                HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            reader.readLine();
+
+            // The server blocks on the full socket while this client doesn't read.
+            HikariDataSource dataSource = environment.bean(HikariDataSource.class);
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (dataSource.getHikariPoolMXBean().getActiveConnections() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections(),
+                    "connections in use while the export waits for the client");
+
+            long lines = 1 + reader.lines().count();
+            assertEquals(TRANSACTIONS, lines);
+        }
+    }
+
+    private String login(String login) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(environment.baseUrl() + "/users/login?login=" + login))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpRequest exportRequest(String token) {
+        return HttpRequest.newBuilder(URI.create(
+                        environment.baseUrl() + "/bank-accounts/transactions/export?accountId=" + accountId))
+                .header(SessionInterceptor.SESSION_TOKEN_HEADER, token)
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.betuganova;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.betuganova.Service.FriendshipIndex.FriendshipIndex;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An embedded PostgreSQL instance with the {@link BankApp} started on top of it on a random port.
+ */
+public class WebTestEnvironment implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private WebTestEnvironment(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * Starts the database and the application, which applies the migrations.
+     *
+     * @param overrides The properties that are added to or replace the defaults of the environment.
+     * @return The started environment.
+     * @throws IOException If the embedded database can't be started.
+     */
+    public static WebTestEnvironment start(Map<String, Object> overrides) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.hikari.minimum-idle", "1");
+        properties.put("server.port", "0");
+        properties.put("management.server.port", "-1");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+
+        try {
+            // Passed as arguments, since the defaults of the builder can't override the application.properties.
+            String[] args = properties.entrySet().stream()
+                    .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                    .toArray(String[]::new);
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(BankApp.class)
+                    .bannerMode(Banner.Mode.OFF)
+                    .logStartupInfo(false)
+                    .run(args);
+
+            return new WebTestEnvironment(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T bean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    public JdbcTemplate jdbc() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * Inserts users named {@code user1..userN}, each with the given number of friends and one bank account with
+     * the given number of transactions.
+     */
+    public void seed(int users, int friendsPerUser, int transactionsPerAccount) {
+        int friends = Math.min(friendsPerUser, users - 1);
+
+        jdbc().update("""
+                INSERT INTO users (login, name, age, gender, hair_color)
+                SELECT 'user' || g, 'User ' || g, 18 + g % 60, g % 3,
+                       (ARRAY['BLACK', 'BROWN', 'BLOND', 'RED', 'WHITE', 'UNKNOWN'])[1 + g % 6]
+                FROM generate_series(1, ?) g
+                """, users);
+
+        jdbc().update("""
+                INSERT INTO friends (user_id, friend_id)
+                SELECT u.id, f.id
+                FROM users u
+                CROSS JOIN generate_series(1, ?) k
+                JOIN users f ON f.login = 'user' || ((substring(u.login FROM 5)::int + k - 1) % ? + 1)
+                """, friends, users);
+
+        jdbc().update("INSERT INTO bank_accounts (user_id, balance) SELECT id, 1e12 FROM users");
+
+        jdbc().update("""
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT 'REPLENISHMENT', 1, a.id
+                FROM bank_accounts a
+                CROSS JOIN generate_series(1, ?)
+                """, transactionsPerAccount);
+
+        jdbc().execute("ANALYZE");
+        bean(FriendshipIndex.class).rebuild();
+    }
+
+    public long userIdOf(String login) {
+        return jdbc().queryForObject("SELECT id FROM users WHERE login = ?", Long.class, login);
+    }
+
+    public long accountIdOf(String login) {
+        return jdbc().queryForObject(
+                "SELECT a.id FROM bank_accounts a JOIN users u ON u.id = a.user_id WHERE u.login = ?",
+                Long.class, login);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.betuganova.Entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Represents the total of one type of transactions of a bank account on one UTC day,
+ * in the "account_daily_totals" table. Rows are maintained by a database trigger on the transactions table.
+ */
+@Getter
+@Entity
+@Immutable
+@Table(name = "account_daily_totals")
+@IdClass(AccountDailyTotalEntity.Key.class)
+@NoArgsConstructor
+public class AccountDailyTotalEntity {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "transaction_type")
+    private String transactionType;
+
+    @Column(name = "total_amount")
+    private double totalAmount;
+
+    @Column(name = "transaction_count")
+    private long transactionCount;
+
+    /**
+     * The composite primary key of the daily totals.
+     */
+    @Getter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDate day;
+        private String transactionType;
+    }
+}
@@ -12,6 +12,8 @@ import java.util.Set;
 /**
  * Represents a bank account entity with transaction history and balance.
  * This class stores the details of a user's bank account, including transactions, balance, and associated user login.
+ * The transaction history is loaded lazily and is read-only: transactions are recorded by inserting
+ * {@link TransactionEntity} rows directly.
  */
 @Getter
 @Setter
@@ -20,7 +22,8 @@ import java.util.Set;
 @NoArgsConstructor
 public class BankAccountEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bank_accounts_seq")
+    @SequenceGenerator(name = "bank_accounts_seq", sequenceName = "bank_accounts_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -29,13 +32,22 @@ public class BankAccountEntity {
     private long userId;
 
     @NotNull
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "accountId", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "accountId", fetch = FetchType.LAZY)
     private Set<TransactionEntity> transactionHistory;
 
     @NotNull
     @Column(name = "balance")
     private double balance;
 
+    /**
+     * Increased with every change of the row made by the service layer. Conditional GETs use it as the ETag.
+     * Entity updates are checked against it, so a change based on a stale read fails instead of
+     * overwriting a concurrent one. The native balance updates increase it themselves.
+     */
+    @Version
+    @Column(name = "version")
+    private long version;
+
     /**
      * Constructs a new BankAccount with the specified id, balance, and user login.
      *
@@ -48,13 +60,4 @@ public class BankAccountEntity {
         this.userId = userId;
         this.transactionHistory = new HashSet<>();
     }
-
-    /**
-     * Adds a new transaction entry to the bank account.
-     *
-     * @param transaction The transaction to be recorded, containing type, amount, and related account information.
-     */
-    public void addTransaction(TransactionEntity transaction) {
-        transactionHistory.add(transaction);
-    }
 }
@@ -0,0 +1,46 @@
+package ru.betuganova.Entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Represents the stored result of a request sent with an idempotency key, in the "idempotency_keys" table.
+ * Rows are written with native statements of {@code IdempotencyKeyRepository} only.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_keys")
+@NoArgsConstructor
+public class IdempotencyKeyEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "user_id")
+    private long userId;
+
+    @NotNull
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @NotNull
+    @Column(name = "fingerprint")
+    private String fingerprint;
+
+    @Column(name = "status")
+    private Integer status;
+
+    @Column(name = "body")
+    private String body;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private Instant createdAt;
+}
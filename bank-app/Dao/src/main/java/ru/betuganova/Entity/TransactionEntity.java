@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+
 /**
  * Represents a financial transaction entity in the system.
  * This entity is used to store transaction details related to a specific bank account.
@@ -17,7 +19,8 @@ import lombok.Setter;
 @NoArgsConstructor
 public class TransactionEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 1)
     @Column(name = "id")
     private Long id;
 
@@ -33,6 +36,12 @@ public class TransactionEntity {
     @Column(name = "account_id")
     private Long accountId;
 
+    @Column(name = "entry_seq", insertable = false, updatable = false)
+    private Long entrySeq;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private Instant createdAt;
+
     /**
      * Represents a financial transaction entity in the system.
      * This entity is used to store transaction details related to a specific bank account.
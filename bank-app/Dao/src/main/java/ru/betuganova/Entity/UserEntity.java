@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.util.Set;
 import java.util.HashSet;
@@ -21,7 +23,8 @@ import java.util.HashSet;
 public class UserEntity {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "login")
@@ -43,7 +46,19 @@ public class UserEntity {
     @Column(name = "hair_color")
     private String hairColor;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Increased with every change of the row made by the service layer. Conditional GETs use it as the ETag.
+     * Only written by atomic updates of the repository, never from the entity, so a stale copy can't overwrite it.
+     */
+    @Column(name = "version", insertable = false, updatable = false)
+    private long version;
+
+    /**
+     * Loaded on first access. The friend lists of all users returned by the same query are then loaded
+     * together with one subselect, instead of walking the whole friendship graph eagerly.
+     */
+    @ManyToMany(fetch = FetchType.LAZY)
+    @Fetch(FetchMode.SUBSELECT)
     @JoinTable(
             name = "friends",
             joinColumns = @JoinColumn(name = "user_id"),
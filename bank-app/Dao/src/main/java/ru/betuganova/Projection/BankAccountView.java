@@ -0,0 +1,12 @@
+package ru.betuganova.Projection;
+
+/**
+ * Projection of a row of the bank_accounts table without the transaction history.
+ */
+public interface BankAccountView {
+    Long getId();
+
+    Long getUserId();
+
+    double getBalance();
+}
@@ -0,0 +1,10 @@
+package ru.betuganova.Projection;
+
+/**
+ * Projection of a row of the friends table.
+ */
+public interface FriendshipView {
+    Long getUserId();
+
+    Long getFriendId();
+}
@@ -0,0 +1,13 @@
+package ru.betuganova.Projection;
+
+/**
+ * Projection of the ledger balance of a bank account:
+ * its latest snapshot plus the entries appended after it.
+ */
+public interface LedgerBalanceView {
+    Long getAccountId();
+
+    Double getBalance();
+
+    Long getTailLength();
+}
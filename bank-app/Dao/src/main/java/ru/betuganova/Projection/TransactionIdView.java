@@ -0,0 +1,10 @@
+package ru.betuganova.Projection;
+
+/**
+ * Projection of a transaction onto its ID and the ID of its bank account.
+ */
+public interface TransactionIdView {
+    Long getAccountId();
+
+    Long getId();
+}
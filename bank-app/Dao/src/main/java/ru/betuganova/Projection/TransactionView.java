@@ -0,0 +1,19 @@
+package ru.betuganova.Projection;
+
+import java.time.Instant;
+
+/**
+ * Projection of a transaction for exports. Unlike entities, projected rows aren't kept in the
+ * persistence context, so streaming them doesn't accumulate memory.
+ */
+public interface TransactionView {
+    Long getId();
+
+    String getTransactionType();
+
+    double getAmount();
+
+    Long getAccountId();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,18 @@
+package ru.betuganova.Projection;
+
+/**
+ * Projection of a row of the users table without the friend list.
+ */
+public interface UserSummaryView {
+    Long getId();
+
+    String getLogin();
+
+    String getName();
+
+    int getAge();
+
+    int getGender();
+
+    String getHairColor();
+}
@@ -0,0 +1,61 @@
+package ru.betuganova.Repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import ru.betuganova.Entity.AccountDailyTotalEntity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository interface for the daily transaction totals of bank accounts.
+ */
+public interface AccountDailyTotalRepository extends Repository<AccountDailyTotalEntity, AccountDailyTotalEntity.Key> {
+    /**
+     * Reads the totals of the days in the range with range scans of the folded totals and of the deltas
+     * that weren't folded yet, so the cost depends on the number of days, not on the number of transactions.
+     */
+    @Query(value = """
+            SELECT account_id, day, transaction_type,
+                   SUM(total_amount) AS total_amount, SUM(transaction_count) AS transaction_count
+            FROM (
+                SELECT account_id, day, transaction_type, total_amount, transaction_count
+                FROM account_daily_totals
+                WHERE account_id = :accountId AND day BETWEEN :from AND :to
+                UNION ALL
+                SELECT account_id, day, transaction_type, total_amount, transaction_count
+                FROM account_daily_total_deltas
+                WHERE account_id = :accountId AND day BETWEEN :from AND :to
+            ) totals
+            GROUP BY account_id, day, transaction_type
+            ORDER BY day, transaction_type
+            """, nativeQuery = true)
+    List<AccountDailyTotalEntity> findByAccountIdAndDays(@Param("accountId") Long accountId,
+                                                         @Param("from") LocalDate from,
+                                                         @Param("to") LocalDate to);
+
+    /**
+     * Moves the deltas visible to the statement into the totals. Deltas committed meanwhile are left to the next fold,
+     * and concurrent folds don't move a delta twice.
+     *
+     * @return The number of updated or inserted totals.
+     */
+    @Modifying
+    @Query(value = """
+            WITH folded AS (
+                DELETE FROM account_daily_total_deltas
+                RETURNING account_id, day, transaction_type, total_amount, transaction_count
+            )
+            INSERT INTO account_daily_totals AS d (account_id, day, transaction_type, total_amount, transaction_count)
+            SELECT account_id, day, transaction_type, SUM(total_amount), SUM(transaction_count)
+            FROM folded
+            GROUP BY 1, 2, 3
+            ORDER BY 1, 2, 3
+            ON CONFLICT (account_id, day, transaction_type) DO UPDATE
+                SET total_amount      = d.total_amount + EXCLUDED.total_amount,
+                    transaction_count = d.transaction_count + EXCLUDED.transaction_count
+            """, nativeQuery = true)
+    int foldDeltas();
+}
@@ -1,11 +1,16 @@
 package ru.betuganova.Repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.betuganova.Entity.BankAccountEntity;
-import ru.betuganova.Entity.UserEntity;
+import ru.betuganova.Projection.BankAccountView;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -15,9 +20,189 @@ public interface BankAccountRepository extends JpaRepository<BankAccountEntity,
     @Query("SELECT b FROM BankAccountEntity b WHERE b.id = :accountId")
     BankAccountEntity findByAccountId(@Param("accountId") Long accountId);
 
-    @Query("SELECT b FROM BankAccountEntity b WHERE b.userId = :userId")
-    List<BankAccountEntity> findByUserId(@Param("userId") Long userId);
+    @Query("SELECT b.id AS id, b.userId AS userId, b.balance AS balance FROM BankAccountEntity b " +
+            "WHERE b.id > :after ORDER BY b.id")
+    List<BankAccountView> findPage(@Param("after") long after, Limit limit);
+
+    @Query("SELECT b.id AS id, b.userId AS userId, b.balance AS balance FROM BankAccountEntity b " +
+            "WHERE b.userId = :userId AND b.id > :after ORDER BY b.id")
+    List<BankAccountView> findPageByUserId(@Param("userId") long userId, @Param("after") long after, Limit limit);
 
     @Query("SELECT b FROM BankAccountEntity b WHERE b.id = :accountId AND b.userId = :userId")
     BankAccountEntity findByIdAndUserId(@Param("accountId") Long accountId, @Param("userId") Long userId);
+
+    @Query("SELECT b.id FROM BankAccountEntity b WHERE b.userId = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT b.balance FROM BankAccountEntity b WHERE b.id = :accountId AND b.userId = :userId")
+    Double findBalanceByIdAndUserId(@Param("accountId") Long accountId, @Param("userId") Long userId);
+
+    @Query("SELECT b.userId FROM BankAccountEntity b WHERE b.id = :accountId")
+    Long findUserIdByAccountId(@Param("accountId") Long accountId);
+
+    /**
+     * Reads a version of the bank accounts of a user that changes whenever an account is opened, a balance changes
+     * or a transaction is recorded: the number of accounts, the sum of their versions and the number of their
+     * transactions. Transactions are taken into account separately because the ledger and write-behind modes record
+     * them without updating the account rows. They are counted from the daily totals, which the trigger on
+     * transactions changes in the same transaction as the insert, so the count grows with every commit in whatever
+     * order concurrent inserts commit, and reading it costs one row per account, day and type rather than one per
+     * transaction.
+     */
+    @Query(value = """
+            SELECT COUNT(*) || '.' || COALESCE(SUM(a.version), 0) || '.' || COALESCE(SUM(t.transaction_count), 0)
+            FROM bank_accounts a
+            LEFT JOIN LATERAL (
+                SELECT SUM(transaction_count) AS transaction_count
+                FROM (
+                    SELECT transaction_count FROM account_daily_totals WHERE account_id = a.id
+                    UNION ALL
+                    SELECT transaction_count FROM account_daily_total_deltas WHERE account_id = a.id
+                ) totals
+            ) t ON true
+            WHERE a.user_id = :userId
+            """, nativeQuery = true)
+    String findAccountsVersionByUserId(@Param("userId") long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BankAccountEntity b WHERE b.id IN :accountIds ORDER BY b.id")
+    List<BankAccountEntity> findAllByIdForUpdate(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Withdraws the amount from the account of the given user and records the transaction in a single statement.
+     * The balance is changed only if it covers the amount.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param userId          The ID of the user who owns the account.
+     * @param amount          The amount to withdraw.
+     * @param transactionType The type of the recorded transaction.
+     * @return The updated balance, or {@code null} if the account wasn't found or the balance is insufficient.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance - :amount, version = version + 1
+                WHERE id = :accountId AND user_id = :userId AND balance >= :amount
+                RETURNING id, balance
+            ), recorded AS (
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT :transactionType, :amount, id FROM updated
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double debitAndRecord(@Param("accountId") Long accountId,
+                          @Param("userId") Long userId,
+                          @Param("amount") double amount,
+                          @Param("transactionType") String transactionType);
+
+    /**
+     * Deposits the amount into the account of the given user and records the transaction in a single statement.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param userId          The ID of the user who owns the account.
+     * @param amount          The amount to deposit.
+     * @param transactionType The type of the recorded transaction.
+     * @return The updated balance, or {@code null} if the account wasn't found.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance + :amount, version = version + 1
+                WHERE id = :accountId AND user_id = :userId
+                RETURNING id, balance
+            ), recorded AS (
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT :transactionType, :amount, id FROM updated
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double creditAndRecord(@Param("accountId") Long accountId,
+                           @Param("userId") Long userId,
+                           @Param("amount") double amount,
+                           @Param("transactionType") String transactionType);
+
+    /**
+     * Deposits the amount into the account regardless of its owner and records the transaction in a single statement.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param amount          The amount to deposit.
+     * @param transactionType The type of the recorded transaction.
+     * @return The updated balance, or {@code null} if the account wasn't found.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance + :amount, version = version + 1
+                WHERE id = :accountId
+                RETURNING id, balance
+            ), recorded AS (
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT :transactionType, :amount, id FROM updated
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double creditAndRecord(@Param("accountId") Long accountId,
+                           @Param("amount") double amount,
+                           @Param("transactionType") String transactionType);
+
+    /**
+     * Withdraws the amount from the account of the given user without recording a transaction,
+     * for the write-behind mode in which transactions are recorded separately.
+     * The balance is changed only if it covers the amount.
+     *
+     * @return The updated balance, or {@code null} if the account wasn't found or the balance is insufficient.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance - :amount, version = version + 1
+                WHERE id = :accountId AND user_id = :userId AND balance >= :amount
+                RETURNING balance
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double debit(@Param("accountId") Long accountId,
+                 @Param("userId") Long userId,
+                 @Param("amount") double amount);
+
+    /**
+     * Deposits the amount into the account of the given user without recording a transaction.
+     *
+     * @return The updated balance, or {@code null} if the account wasn't found.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance + :amount, version = version + 1
+                WHERE id = :accountId AND user_id = :userId
+                RETURNING balance
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double credit(@Param("accountId") Long accountId,
+                  @Param("userId") Long userId,
+                  @Param("amount") double amount);
+
+    /**
+     * Deposits the amount into the account regardless of its owner without recording a transaction.
+     *
+     * @return The updated balance, or {@code null} if the account wasn't found.
+     */
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE bank_accounts
+                SET balance = balance + :amount, version = version + 1
+                WHERE id = :accountId
+                RETURNING balance
+            )
+            SELECT balance FROM updated
+            """, nativeQuery = true)
+    Double credit(@Param("accountId") Long accountId,
+                  @Param("amount") double amount);
 }
@@ -0,0 +1,46 @@
+package ru.betuganova.Repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import ru.betuganova.Entity.IdempotencyKeyEntity;
+
+import java.time.Instant;
+
+/**
+ * Repository interface for the stored results of idempotent requests.
+ */
+public interface IdempotencyKeyRepository extends Repository<IdempotencyKeyEntity, Long> {
+    /**
+     * Claims an idempotency key of a user. If the key is being claimed by a concurrent transaction,
+     * waits for that transaction to finish.
+     *
+     * @return 1 if the key was claimed, 0 if it had already been claimed.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (user_id, idempotency_key, fingerprint)
+            VALUES (:userId, :idempotencyKey, :fingerprint)
+            ON CONFLICT (user_id, idempotency_key) DO NOTHING
+            """, nativeQuery = true)
+    int claim(@Param("userId") long userId,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("fingerprint") String fingerprint);
+
+    @Modifying
+    @Query(value = """
+            UPDATE idempotency_keys SET status = :status, body = :body
+            WHERE user_id = :userId AND idempotency_key = :idempotencyKey
+            """, nativeQuery = true)
+    int complete(@Param("userId") long userId,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("status") int status,
+                 @Param("body") String body);
+
+    IdempotencyKeyEntity findByUserIdAndIdempotencyKey(long userId, String idempotencyKey);
+
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE created_at < :before", nativeQuery = true)
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
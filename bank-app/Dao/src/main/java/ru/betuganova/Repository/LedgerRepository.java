@@ -0,0 +1,199 @@
+package ru.betuganova.Repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import ru.betuganova.Entity.TransactionEntity;
+import ru.betuganova.Projection.LedgerBalanceView;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the ledger mode, in which balances are derived from the transactions table
+ * and the balance snapshots taken every few entries.
+ * Every writer locks the account row before appending: debits and snapshots with {@code FOR UPDATE},
+ * credits with the weaker {@code FOR KEY SHARE}, which doesn't block other credits.
+ */
+public interface LedgerRepository extends Repository<TransactionEntity, Long> {
+    @Query(value = "SELECT id FROM bank_accounts WHERE id = :accountId AND user_id = :userId FOR UPDATE",
+            nativeQuery = true)
+    Long lockForDebit(@Param("accountId") Long accountId, @Param("userId") Long userId);
+
+    @Query(value = "SELECT id FROM bank_accounts WHERE id = :accountId FOR UPDATE", nativeQuery = true)
+    Long lockForSnapshot(@Param("accountId") Long accountId);
+
+    /**
+     * Appends an entry to the ledger of the account, if the account is owned by the given user.
+     *
+     * @return The number of appended entries, 0 if the account wasn't found.
+     */
+    @Modifying
+    @Query(value = """
+            WITH account AS (
+                SELECT id FROM bank_accounts WHERE id = :accountId AND user_id = :userId FOR KEY SHARE
+            )
+            INSERT INTO transactions (transaction_type, amount, account_id)
+            SELECT :transactionType, :amount, id FROM account
+            """, nativeQuery = true)
+    int append(@Param("accountId") Long accountId,
+               @Param("userId") Long userId,
+               @Param("amount") double amount,
+               @Param("transactionType") String transactionType);
+
+    /**
+     * Appends an entry to the ledger of the account regardless of its owner.
+     *
+     * @return The number of appended entries, 0 if the account wasn't found.
+     */
+    @Modifying
+    @Query(value = """
+            WITH account AS (
+                SELECT id FROM bank_accounts WHERE id = :accountId FOR KEY SHARE
+            )
+            INSERT INTO transactions (transaction_type, amount, account_id)
+            SELECT :transactionType, :amount, id FROM account
+            """, nativeQuery = true)
+    int append(@Param("accountId") Long accountId,
+               @Param("amount") double amount,
+               @Param("transactionType") String transactionType);
+
+    @Query(value = """
+            SELECT a.id AS "accountId",
+                   COALESCE(s.balance, 0) + COALESCE(tail.delta, 0) AS "balance",
+                   tail.entries AS "tailLength"
+            FROM bank_accounts a
+            LEFT JOIN LATERAL (
+                SELECT last_entry_seq, balance FROM balance_snapshots
+                WHERE account_id = a.id
+                ORDER BY last_entry_seq DESC
+                LIMIT 1
+            ) s ON true
+            CROSS JOIN LATERAL (
+                SELECT SUM(ledger_signed_amount(t.transaction_type, t.amount)) AS delta, COUNT(*) AS entries
+                FROM transactions t
+                WHERE t.account_id = a.id AND t.entry_seq > COALESCE(s.last_entry_seq, 0)
+            ) tail
+            WHERE a.id IN (:accountIds)
+            """, nativeQuery = true)
+    List<LedgerBalanceView> findBalances(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Computes the balance of an account from the latest snapshot taken no later than the given instant
+     * and the entries created up to that instant.
+     */
+    @Query(value = """
+            WITH snapshot AS (
+                SELECT last_entry_seq, balance FROM balance_snapshots
+                WHERE account_id = :accountId AND as_of <= :at
+                ORDER BY last_entry_seq DESC
+                LIMIT 1
+            )
+            SELECT COALESCE((SELECT balance FROM snapshot), 0)
+                   + COALESCE(SUM(ledger_signed_amount(t.transaction_type, t.amount)), 0)
+            FROM transactions t
+            WHERE t.account_id = :accountId
+              AND t.entry_seq > COALESCE((SELECT last_entry_seq FROM snapshot), 0)
+              AND t.created_at <= :at
+            """, nativeQuery = true)
+    double findBalanceAt(@Param("accountId") Long accountId, @Param("at") Instant at);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO balance_snapshots (account_id, last_entry_seq, balance, as_of)
+            VALUES (:accountId, 0, :balance, now())
+            """, nativeQuery = true)
+    int insertOpeningSnapshot(@Param("accountId") Long accountId, @Param("balance") double balance);
+
+    /**
+     * Folds the entries appended after the latest snapshot of the account into a new snapshot,
+     * if there are at least the given number of them. The account must be locked with {@link #lockForSnapshot}.
+     *
+     * @return The number of taken snapshots.
+     */
+    @Modifying
+    @Query(value = """
+            WITH snapshot AS (
+                SELECT last_entry_seq, balance, as_of FROM balance_snapshots
+                WHERE account_id = :accountId
+                ORDER BY last_entry_seq DESC
+                LIMIT 1
+            ), tail AS (
+                SELECT MAX(t.entry_seq) AS last_entry_seq,
+                       SUM(ledger_signed_amount(t.transaction_type, t.amount)) AS delta,
+                       MAX(t.created_at) AS as_of,
+                       COUNT(*) AS entries
+                FROM transactions t
+                WHERE t.account_id = :accountId
+                  AND t.entry_seq > COALESCE((SELECT last_entry_seq FROM snapshot), 0)
+            )
+            INSERT INTO balance_snapshots (account_id, last_entry_seq, balance, as_of)
+            SELECT :accountId, tail.last_entry_seq,
+                   COALESCE((SELECT balance FROM snapshot), 0) + tail.delta,
+                   GREATEST((SELECT as_of FROM snapshot), tail.as_of)
+            FROM tail
+            WHERE tail.entries > 0 AND tail.entries >= :minEntries
+            """, nativeQuery = true)
+    int takeSnapshot(@Param("accountId") Long accountId, @Param("minEntries") int minEntries);
+
+    /**
+     * Blocks writes to the accounts until the end of the transaction, so the stored balances and the ledgers can't
+     * change while the mode is converted, and two conversions don't run at the same time.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE bank_accounts IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockAccounts();
+
+    @Query(value = """
+            SELECT EXISTS (
+                SELECT 1 FROM bank_accounts a
+                WHERE NOT EXISTS (SELECT 1 FROM balance_snapshots s WHERE s.account_id = a.id)
+            )
+            """, nativeQuery = true)
+    boolean existsAccountWithoutLedger();
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM balance_snapshots)", nativeQuery = true)
+    boolean existsLedger();
+
+    /**
+     * Starts the ledger of every account that has none from its stored balance.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO balance_snapshots (account_id, last_entry_seq, balance, as_of)
+            SELECT a.id, COALESCE(MAX(t.entry_seq), 0), a.balance, now()
+            FROM bank_accounts a
+            LEFT JOIN transactions t ON t.account_id = a.id
+            WHERE NOT EXISTS (SELECT 1 FROM balance_snapshots s WHERE s.account_id = a.id)
+            GROUP BY a.id, a.balance
+            """, nativeQuery = true)
+    int startLedgers();
+
+    /**
+     * Writes the ledger balance of every account that has a ledger back to the stored balance.
+     * Used when the ledger mode is turned off, before the snapshots are dropped.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE bank_accounts a
+            SET version = a.version + 1,
+                balance = s.balance + COALESCE((
+                SELECT SUM(ledger_signed_amount(t.transaction_type, t.amount))
+                FROM transactions t
+                WHERE t.account_id = a.id AND t.entry_seq > s.last_entry_seq
+            ), 0)
+            FROM (
+                SELECT DISTINCT ON (account_id) account_id, last_entry_seq, balance
+                FROM balance_snapshots
+                ORDER BY account_id, last_entry_seq DESC
+            ) s
+            WHERE s.account_id = a.id
+            """, nativeQuery = true)
+    int foldLedgers();
+
+    @Modifying
+    @Query(value = "DELETE FROM balance_snapshots", nativeQuery = true)
+    int deleteSnapshots();
+}
@@ -0,0 +1,68 @@
+package ru.betuganova.Repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.betuganova.Entity.TransactionEntity;
+import ru.betuganova.Projection.TransactionIdView;
+import ru.betuganova.Projection.TransactionView;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for reading the transaction history of bank accounts.
+ */
+public interface TransactionRepository extends JpaRepository<TransactionEntity, Long> {
+    /**
+     * Inserts the transactions given by the elements at the same index of the arrays in a single statement.
+     * Their ids come from the column default as the rows are inserted, like those of every other insert.
+     *
+     * @return The number of inserted transactions.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO transactions (transaction_type, amount, account_id)
+            SELECT * FROM unnest(CAST(:transactionTypes AS varchar[]),
+                                 CAST(:amounts AS double precision[]),
+                                 CAST(:accountIds AS bigint[]))
+            """, nativeQuery = true)
+    int insertAll(@Param("transactionTypes") String[] transactionTypes,
+                  @Param("amounts") double[] amounts,
+                  @Param("accountIds") long[] accountIds);
+
+    @Query("SELECT t FROM TransactionEntity t WHERE t.accountId = :accountId AND t.id > :after ORDER BY t.id")
+    List<TransactionEntity> findPageByAccountId(@Param("accountId") Long accountId,
+                                                @Param("after") long after,
+                                                Limit limit);
+
+    @Query("SELECT t FROM TransactionEntity t " +
+            "WHERE t.accountId = :accountId AND t.transactionType = :transactionType AND t.id > :after " +
+            "ORDER BY t.id")
+    List<TransactionEntity> findPageByAccountIdAndType(@Param("accountId") Long accountId,
+                                                       @Param("transactionType") String transactionType,
+                                                       @Param("after") long after,
+                                                       Limit limit);
+
+    @Query("SELECT t.id AS id, t.transactionType AS transactionType, t.amount AS amount, " +
+            "t.accountId AS accountId, t.createdAt AS createdAt FROM TransactionEntity t " +
+            "WHERE t.accountId = :accountId AND t.id > :after ORDER BY t.id")
+    List<TransactionView> findViewPageByAccountId(@Param("accountId") Long accountId,
+                                                  @Param("after") long after,
+                                                  Limit limit);
+
+    @Query("SELECT t.id AS id, t.transactionType AS transactionType, t.amount AS amount, " +
+            "t.accountId AS accountId, t.createdAt AS createdAt FROM TransactionEntity t " +
+            "WHERE t.accountId = :accountId AND t.transactionType = :transactionType AND t.id > :after " +
+            "ORDER BY t.id")
+    List<TransactionView> findViewPageByAccountIdAndType(@Param("accountId") Long accountId,
+                                                         @Param("transactionType") String transactionType,
+                                                         @Param("after") long after,
+                                                         Limit limit);
+
+    @Query("SELECT t.accountId AS accountId, t.id AS id FROM TransactionEntity t " +
+            "WHERE t.accountId IN :accountIds ORDER BY t.id")
+    List<TransactionIdView> findIdsByAccountIds(@Param("accountIds") Collection<Long> accountIds);
+}
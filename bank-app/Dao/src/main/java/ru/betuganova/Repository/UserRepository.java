@@ -1,12 +1,21 @@
 package ru.betuganova.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.betuganova.Entity.UserEntity;
+import ru.betuganova.Projection.FriendshipView;
+import ru.betuganova.Projection.UserSummaryView;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing users and friendships.
@@ -15,6 +24,80 @@ import java.util.List;
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     UserEntity findByLogin(String login);
 
+    @Query("SELECT u.id FROM UserEntity u WHERE u.login = :login")
+    Long findIdByLogin(@Param("login") String login);
+
+    List<UserEntity> findAllByLoginIn(Collection<String> logins);
+
     @Query("SELECT f FROM UserEntity u JOIN u.friends f WHERE u.login = :login")
     List<UserEntity> findFriendsByUserLogin(@Param("login") String login);
+
+    /**
+     * Increases the version of the user in a single statement, so concurrent changes can't lose an increment.
+     *
+     * @return The new version, or {@code null} if the user wasn't found.
+     */
+    @Transactional
+    @Query(value = "UPDATE users SET version = version + 1 WHERE id = :userId RETURNING version", nativeQuery = true)
+    Long incrementVersion(@Param("userId") long userId);
+
+    /**
+     * Reads the version of a user without loading the user.
+     *
+     * @return The version, or {@code null} if the user wasn't found.
+     */
+    @Query(value = "SELECT version FROM users WHERE login = :login", nativeQuery = true)
+    Long findVersionByLogin(@Param("login") String login);
+
+    /**
+     * Reads a version of the friend list of a user that changes whenever the list or the friend list
+     * of one of the friends changes: the version of the user and the number and sum of versions of the friends.
+     *
+     * @return The version, or {@code null} if the user wasn't found.
+     */
+    @Query(value = """
+            SELECT u.version || '.' || COUNT(f.id) || '.' || COALESCE(SUM(f.version), 0)
+            FROM users u
+            LEFT JOIN friends fr ON fr.user_id = u.id
+            LEFT JOIN users f ON f.id = fr.friend_id
+            WHERE u.id = :userId
+            GROUP BY u.id, u.version
+            """, nativeQuery = true)
+    String findFriendsVersionByUserId(@Param("userId") long userId);
+
+    /**
+     * Streams every friendship ordered by the user whose friend list contains it, along the primary key of the
+     * friends table, so the friend list of one user arrives in one run.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query(value = "SELECT user_id AS \"userId\", friend_id AS \"friendId\" FROM friends ORDER BY user_id",
+            nativeQuery = true)
+    Stream<FriendshipView> streamAllFriendships();
+
+    @Query("SELECT u.id AS id, u.login AS login, u.name AS name, u.age AS age, " +
+            "u.gender AS gender, u.hairColor AS hairColor FROM UserEntity u " +
+            "WHERE u.id > :after ORDER BY u.id")
+    List<UserSummaryView> findPage(@Param("after") long after, Limit limit);
+
+    @Query("SELECT u.id AS id, u.login AS login, u.name AS name, u.age AS age, " +
+            "u.gender AS gender, u.hairColor AS hairColor FROM UserEntity u " +
+            "WHERE u.hairColor = :hairColor AND u.id > :after ORDER BY u.id")
+    List<UserSummaryView> findPageByHairColor(@Param("hairColor") String hairColor,
+                                              @Param("after") long after,
+                                              Limit limit);
+
+    @Query("SELECT u.id AS id, u.login AS login, u.name AS name, u.age AS age, " +
+            "u.gender AS gender, u.hairColor AS hairColor FROM UserEntity u " +
+            "WHERE u.gender = :gender AND u.id > :after ORDER BY u.id")
+    List<UserSummaryView> findPageByGender(@Param("gender") int gender,
+                                           @Param("after") long after,
+                                           Limit limit);
+
+    @Query("SELECT u.id AS id, u.login AS login, u.name AS name, u.age AS age, " +
+            "u.gender AS gender, u.hairColor AS hairColor FROM UserEntity u " +
+            "WHERE u.hairColor = :hairColor AND u.gender = :gender AND u.id > :after ORDER BY u.id")
+    List<UserSummaryView> findPageByHairColorAndGender(@Param("hairColor") String hairColor,
+                                                       @Param("gender") int gender,
+                                                       @Param("after") long after,
+                                                       Limit limit);
 }
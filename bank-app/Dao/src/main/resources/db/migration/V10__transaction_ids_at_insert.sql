@@ -0,0 +1,11 @@
+-- Transactions are only inserted by SQL statements that take their ids from the column default, so ids are drawn
+-- one at a time when a row is inserted instead of in blocks of 1000 reserved by each instance ahead of time.
+-- A single-row insert no longer uses up a whole block, and a row only gets a lower id than an already committed
+-- one while both are in flight. The new values start above every block reserved so far; no instance running
+-- the old mapping may insert transactions after this migration.
+ALTER SEQUENCE transactions_seq INCREMENT BY 1;
+
+SELECT setval('transactions_seq',
+              GREATEST((SELECT last_value FROM transactions_seq) + 1000,
+                       COALESCE((SELECT MAX(id) FROM transactions), 0) + 1),
+              false);
@@ -0,0 +1,3 @@
+CREATE INDEX idx_transactions_account_type_id ON transactions (account_id, transaction_type, id);
+
+CREATE INDEX idx_transactions_account_id_id ON transactions (account_id, id);
@@ -0,0 +1,24 @@
+-- Hibernate allocates ids in blocks (pooled-lo optimizer): a single nextval reserves
+-- [value, value + increment) for the application, so the increments must match the
+-- allocationSize of the entity mappings. Plain SQL inserts keep working through the
+-- column defaults and only consume the value they get.
+
+CREATE SEQUENCE users_seq INCREMENT BY 50;
+CREATE SEQUENCE bank_accounts_seq INCREMENT BY 50;
+CREATE SEQUENCE transactions_seq INCREMENT BY 1000;
+
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1, false);
+SELECT setval('bank_accounts_seq', COALESCE((SELECT MAX(id) FROM bank_accounts), 0) + 1, false);
+SELECT setval('transactions_seq', COALESCE((SELECT MAX(id) FROM transactions), 0) + 1, false);
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE bank_accounts ALTER COLUMN id SET DEFAULT nextval('bank_accounts_seq');
+ALTER TABLE transactions ALTER COLUMN id SET DEFAULT nextval('transactions_seq');
+
+ALTER SEQUENCE users_seq OWNED BY users.id;
+ALTER SEQUENCE bank_accounts_seq OWNED BY bank_accounts.id;
+ALTER SEQUENCE transactions_seq OWNED BY transactions.id;
+
+DROP SEQUENCE users_id_seq;
+DROP SEQUENCE bank_accounts_id_seq;
+DROP SEQUENCE transactions_id_seq;
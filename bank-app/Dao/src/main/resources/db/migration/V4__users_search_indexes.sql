@@ -0,0 +1,3 @@
+CREATE INDEX idx_users_hair_color_gender_id ON users (hair_color, gender, id);
+
+CREATE INDEX idx_users_gender_id ON users (gender, id);
@@ -0,0 +1,35 @@
+-- Ledger mode (bank.ledger.enabled): the transactions table is the source of truth for balances.
+-- entry_seq orders the entries of the ledger. Unlike the id it is assigned by the database at insert
+-- time, after the writer has locked the account row, so a snapshot taken under FOR UPDATE covers
+-- exactly the entries with entry_seq <= last_entry_seq.
+
+CREATE SEQUENCE ledger_entry_seq;
+
+ALTER TABLE transactions ADD COLUMN entry_seq BIGINT NOT NULL DEFAULT nextval('ledger_entry_seq');
+ALTER TABLE transactions ADD COLUMN created_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+ALTER SEQUENCE ledger_entry_seq OWNED BY transactions.entry_seq;
+
+CREATE INDEX idx_transactions_account_entry_seq ON transactions (account_id, entry_seq);
+
+CREATE TABLE balance_snapshots
+(
+    id             BIGSERIAL PRIMARY KEY,
+    account_id     BIGINT           NOT NULL,
+    last_entry_seq BIGINT           NOT NULL,
+    balance        DOUBLE PRECISION NOT NULL,
+    as_of          TIMESTAMPTZ      NOT NULL,
+    taken_at       TIMESTAMPTZ      NOT NULL DEFAULT now(),
+    FOREIGN KEY (account_id) REFERENCES bank_accounts (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_balance_snapshots_account_entry_seq ON balance_snapshots (account_id, last_entry_seq);
+
+CREATE FUNCTION ledger_signed_amount(transaction_type VARCHAR, amount DOUBLE PRECISION)
+    RETURNS DOUBLE PRECISION
+    LANGUAGE sql
+    IMMUTABLE
+AS
+$$
+SELECT CASE WHEN transaction_type IN ('REPLENISHMENT', 'TRANSFER_TO') THEN amount ELSE -amount END
+$$;
@@ -0,0 +1,18 @@
+-- Results of requests sent with an Idempotency-Key header, scoped per user.
+-- A row is inserted and completed in the transaction of the request itself,
+-- so a committed row always holds the result of an applied request.
+
+CREATE TABLE idempotency_keys
+(
+    id              BIGSERIAL PRIMARY KEY,
+    user_id         BIGINT        NOT NULL,
+    idempotency_key VARCHAR(255)  NOT NULL,
+    fingerprint     VARCHAR(1024) NOT NULL,
+    status          INT,
+    body            TEXT,
+    created_at      TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    UNIQUE (user_id, idempotency_key),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,42 @@
+-- Per-account daily totals by transaction type for dashboards. Days are UTC days of transactions.created_at.
+-- A statement-level trigger adds every inserted batch of transactions to the totals in the same transaction,
+-- whichever path inserted them: the guarded CTE updates, JPA batches, the ledger or the COPY write-behind.
+CREATE TABLE account_daily_totals
+(
+    account_id        BIGINT           NOT NULL,
+    day               DATE             NOT NULL,
+    transaction_type  VARCHAR(255)     NOT NULL,
+    total_amount      DOUBLE PRECISION NOT NULL,
+    transaction_count BIGINT           NOT NULL,
+    PRIMARY KEY (account_id, day, transaction_type),
+    FOREIGN KEY (account_id) REFERENCES bank_accounts (id) ON DELETE CASCADE
+);
+
+CREATE FUNCTION add_to_account_daily_totals() RETURNS trigger AS
+$$
+BEGIN
+    -- Grouped and ordered, so a statement touches every totals row once and concurrent statements lock rows
+    -- in the same order.
+    INSERT INTO account_daily_totals AS d (account_id, day, transaction_type, total_amount, transaction_count)
+    SELECT account_id, (created_at AT TIME ZONE 'UTC')::date, transaction_type, SUM(amount), COUNT(*)
+    FROM new_transactions
+    GROUP BY 1, 2, 3
+    ORDER BY 1, 2, 3
+    ON CONFLICT (account_id, day, transaction_type) DO UPDATE
+        SET total_amount      = d.total_amount + EXCLUDED.total_amount,
+            transaction_count = d.transaction_count + EXCLUDED.transaction_count;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER transactions_daily_totals
+    AFTER INSERT ON transactions
+    REFERENCING NEW TABLE AS new_transactions
+    FOR EACH STATEMENT
+EXECUTE FUNCTION add_to_account_daily_totals();
+
+INSERT INTO account_daily_totals (account_id, day, transaction_type, total_amount, transaction_count)
+SELECT account_id, (created_at AT TIME ZONE 'UTC')::date, transaction_type, SUM(amount), COUNT(*)
+FROM transactions
+GROUP BY 1, 2, 3;
@@ -0,0 +1,6 @@
+-- Versions increased with every change of a row made by the service layer, used as ETags of conditional GETs.
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE bank_accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Serves the version lookup and the pages of the accounts of a user.
+CREATE INDEX idx_bank_accounts_user_id_id ON bank_accounts (user_id, id);
@@ -0,0 +1,27 @@
+-- The upsert of V7 locked the totals row of (account, day, type) on every insert, which serialized the concurrent
+-- credits of an account in the ledger mode. The trigger now appends the totals of every inserted batch to a delta
+-- table without touching existing rows, and the deltas are folded into account_daily_totals in the background.
+-- Readers add the deltas that weren't folded yet, so the totals stay exact.
+CREATE TABLE account_daily_total_deltas
+(
+    account_id        BIGINT           NOT NULL,
+    day               DATE             NOT NULL,
+    transaction_type  VARCHAR(255)     NOT NULL,
+    total_amount      DOUBLE PRECISION NOT NULL,
+    transaction_count BIGINT           NOT NULL,
+    FOREIGN KEY (account_id) REFERENCES bank_accounts (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_account_daily_total_deltas_account_id_day ON account_daily_total_deltas (account_id, day);
+
+CREATE OR REPLACE FUNCTION add_to_account_daily_totals() RETURNS trigger AS
+$$
+BEGIN
+    INSERT INTO account_daily_total_deltas (account_id, day, transaction_type, total_amount, transaction_count)
+    SELECT account_id, (created_at AT TIME ZONE 'UTC')::date, transaction_type, SUM(amount), COUNT(*)
+    FROM new_transactions
+    GROUP BY 1, 2, 3;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
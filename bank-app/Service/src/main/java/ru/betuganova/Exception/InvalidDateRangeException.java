@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class InvalidDateRangeException extends RuntimeException {
+    public InvalidDateRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class InvalidTransferBatchException extends RuntimeException {
+    public InvalidTransferBatchException(String message) {
+        super(message);
+    }
+}
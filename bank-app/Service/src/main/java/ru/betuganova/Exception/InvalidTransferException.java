@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class InvalidTransferException extends RuntimeException {
+    public InvalidTransferException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class LedgerDisabledException extends RuntimeException {
+    public LedgerDisabledException(String message) {
+        super(message);
+    }
+}
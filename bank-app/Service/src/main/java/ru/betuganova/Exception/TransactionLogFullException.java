@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class TransactionLogFullException extends RuntimeException {
+    public TransactionLogFullException(String message) {
+        super(message);
+    }
+}
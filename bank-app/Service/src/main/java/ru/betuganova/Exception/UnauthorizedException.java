@@ -0,0 +1,7 @@
+package ru.betuganova.Exception;
+
+public class UnauthorizedException extends RuntimeException {
+    public UnauthorizedException(String message) {
+        super(message);
+    }
+}
@@ -1,58 +1,40 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.Converter;
-import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Component;
 import ru.betuganova.Entity.BankAccountEntity;
-import ru.betuganova.Entity.TransactionEntity;
 import ru.betuganova.Model.BankAccount;
+import ru.betuganova.Projection.BankAccountView;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
-
+@Component
 public class BankAccountMapper {
-    private final ModelMapper modelMapper;
-
-    public BankAccountMapper() {
-        this.modelMapper = new ModelMapper();
-
-        Converter<Set<TransactionEntity>, ArrayList<Long>> transactionsToIds = ctx ->
-                ctx.getSource() == null ? new java.util.ArrayList<>() :
-                        ctx.getSource().stream()
-                                .map(TransactionEntity::getId)
-                                .collect(Collectors.toCollection(java.util.ArrayList::new));
-
-        Converter<BankAccount, Set<TransactionEntity>> idsToTransactions = ctx -> {
-            BankAccount source = ctx.getSource();
-            if (source.getTransactionIdHistory() == null || source.getTransactionIdHistory().isEmpty()) {
-                return new HashSet<>();
-            }
-
-            BankAccountEntity destination = (BankAccountEntity) ctx.getParent().getDestination();
-            if (destination.getTransactionHistory() == null) {
-                return new HashSet<>();
-            }
+    public BankAccount toModel(BankAccountEntity bankAccount) {
+        if (bankAccount == null) return null;
 
-            Set<Long> ids = new HashSet<>(source.getTransactionIdHistory());
-            return destination.getTransactionHistory().stream()
-                    .filter(tx -> ids.contains(tx.getId()))
-                    .collect(Collectors.toSet());
-        };
+        BankAccount model = new BankAccount();
+        model.setId(bankAccount.getId());
+        model.setUserId(bankAccount.getUserId());
+        model.setBalance(bankAccount.getBalance());
 
+        return model;
+    }
 
-        modelMapper.createTypeMap(BankAccountEntity.class, BankAccount.class)
-                .addMappings(mapper -> mapper.using(transactionsToIds)
-                        .map(BankAccountEntity::getTransactionHistory, BankAccount::setTransactionIdHistory));
+    public BankAccount toModel(BankAccountView bankAccount) {
+        if (bankAccount == null) return null;
 
-        modelMapper.createTypeMap(BankAccount.class, BankAccountEntity.class);
-    }
+        BankAccount model = new BankAccount();
+        model.setId(bankAccount.getId());
+        model.setUserId(bankAccount.getUserId());
+        model.setBalance(bankAccount.getBalance());
 
-    public BankAccount toModel(BankAccountEntity bankAccount) {
-        return modelMapper.map(bankAccount, BankAccount.class);
+        return model;
     }
 
     public BankAccountEntity toEntity(BankAccount bankAccount) {
-        return modelMapper.map(bankAccount, BankAccountEntity.class);
+        if (bankAccount == null) return null;
+
+        BankAccountEntity entity = new BankAccountEntity(bankAccount.getBalance(), bankAccount.getUserId());
+        entity.setId(bankAccount.getId());
+
+        return entity;
     }
 }
@@ -0,0 +1,21 @@
+package ru.betuganova.Mapper;
+
+import org.springframework.stereotype.Component;
+import ru.betuganova.Entity.AccountDailyTotalEntity;
+import ru.betuganova.Model.DailyTotal;
+import ru.betuganova.Model.TransactionType;
+
+@Component
+public class DailyTotalMapper {
+    public DailyTotal toModel(AccountDailyTotalEntity total) {
+        if (total == null) return null;
+
+        DailyTotal model = new DailyTotal();
+        model.setDay(total.getDay());
+        model.setTransactionType(TransactionType.valueOf(total.getTransactionType()));
+        model.setTotalAmount(total.getTotalAmount());
+        model.setTransactionCount(total.getTransactionCount());
+
+        return model;
+    }
+}
@@ -1,26 +1,45 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Component;
 import ru.betuganova.Entity.TransactionEntity;
 import ru.betuganova.Model.Transaction;
+import ru.betuganova.Model.TransactionType;
+import ru.betuganova.Projection.TransactionView;
 
+@Component
 public class TransactionMapper {
-    private final ModelMapper modelMapper;
+    public Transaction toModel(TransactionEntity transaction) {
+        if (transaction == null) return null;
 
-    public TransactionMapper() {
-        this.modelMapper = new ModelMapper();
+        Transaction model = new Transaction();
+        model.setId(transaction.getId());
+        model.setTransactionType(TransactionType.valueOf(transaction.getTransactionType()));
+        model.setAmount(transaction.getAmount());
+        model.setAccountId(transaction.getAccountId());
+        model.setCreatedAt(transaction.getCreatedAt());
+
+        return model;
     }
 
-    public Transaction toModel(TransactionEntity transaction) {
-        return transaction == null ? null : modelMapper.map(transaction, Transaction.class);
+    public Transaction toModel(TransactionView transaction) {
+        if (transaction == null) return null;
+
+        Transaction model = new Transaction();
+        model.setId(transaction.getId());
+        model.setTransactionType(TransactionType.valueOf(transaction.getTransactionType()));
+        model.setAmount(transaction.getAmount());
+        model.setAccountId(transaction.getAccountId());
+        model.setCreatedAt(transaction.getCreatedAt());
+
+        return model;
     }
 
     public TransactionEntity toEntity(Transaction transaction) {
         if (transaction == null) return null;
 
-        TransactionEntity transactionEntity = modelMapper.map(transaction, TransactionEntity.class);
-        transactionEntity.setId(null);
-
-        return transactionEntity;
+        return new TransactionEntity(
+                transaction.getTransactionType().name(),
+                transaction.getAccountId(),
+                transaction.getAmount());
     }
 }
@@ -1,65 +1,76 @@
 package ru.betuganova.Mapper;
 
-import org.modelmapper.Converter;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.betuganova.Entity.UserEntity;
 import ru.betuganova.Model.HairColor;
 import ru.betuganova.Model.User;
+import ru.betuganova.Projection.UserSummaryView;
 import ru.betuganova.Repository.UserRepository;
 
-import java.util.Objects;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Component
 public class UserMapper {
-    private UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final UserRepository userRepository;
 
     @Autowired
     public UserMapper(UserRepository userRepository) {
         this.userRepository = userRepository;
-        this.modelMapper = new ModelMapper();
-        configureMappings();
     }
 
-    private void configureMappings() {
-        Converter<String, HairColor> toEnum = ctx -> HairColor.valueOf(ctx.getSource().toUpperCase());
-        Converter<HairColor, String> toString = ctx -> ctx.getSource().name();
-
-        Converter<Set<UserEntity>, Set<String>> friendsToLogins = ctx ->
-                ctx.getSource() == null ? null :
-                        ctx.getSource().stream()
-                                .map(UserEntity::getLogin)
-                                .collect(Collectors.toSet());
+    public User toModel(UserEntity user) {
+        if (user == null) return null;
 
-        Converter<Set<String>, Set<UserEntity>> loginsToFriends = ctx ->
-                ctx.getSource() == null ? null :
-                        ctx.getSource().stream()
-                                .map(userRepository::findByLogin)
-                                .filter(Objects::nonNull)
-                                .collect(Collectors.toSet());
+        User model = new User();
+        model.setLogin(user.getLogin());
+        model.setName(user.getName());
+        model.setAge(user.getAge());
+        model.setGender(user.getGender());
+        model.setHairColor(user.getHairColor() == null ? null : HairColor.valueOf(user.getHairColor().toUpperCase()));
+        model.setVersion(user.getVersion());
 
-        modelMapper.createTypeMap(UserEntity.class, User.class)
-                .addMappings(mapper -> {
-                    mapper.using(toEnum).map(UserEntity::getHairColor, User::setHairColor);
-                    mapper.using(friendsToLogins).map(UserEntity::getFriends, User::setFriends);
-                });
+        if (user.getFriends() != null) {
+            Set<String> friends = new HashSet<>(user.getFriends().size() * 2);
+            for (UserEntity friend : user.getFriends()) {
+                friends.add(friend.getLogin());
+            }
+            model.setFriends(friends);
+        }
 
-        modelMapper.createTypeMap(User.class, UserEntity.class)
-                .addMappings(mapper -> {
-                    mapper.using(toString).map(User::getHairColor, UserEntity::setHairColor);
-                    mapper.using(loginsToFriends).map(User::getFriends, UserEntity::setFriends);
-                });
+        return model;
     }
 
-    public User toModel(UserEntity user) {
-        return user == null ? null : modelMapper.map(user, User.class);
+    public User toModel(UserSummaryView user) {
+        if (user == null) return null;
+
+        User model = new User();
+        model.setLogin(user.getLogin());
+        model.setName(user.getName());
+        model.setAge(user.getAge());
+        model.setGender(user.getGender());
+        model.setHairColor(user.getHairColor() == null ? null : HairColor.valueOf(user.getHairColor().toUpperCase()));
+
+        return model;
     }
 
     public UserEntity toEntity(User user) {
-        return user == null ? null : modelMapper.map(user, UserEntity.class);
+        if (user == null) return null;
+
+        UserEntity entity = new UserEntity(
+                user.getLogin(),
+                user.getName(),
+                user.getAge(),
+                user.getGender(),
+                user.getHairColor() == null ? null : user.getHairColor().name());
+
+        if (user.getFriends() == null) {
+            entity.setFriends(null);
+        } else if (!user.getFriends().isEmpty()) {
+            entity.setFriends(new HashSet<>(userRepository.findAllByLoginIn(user.getFriends())));
+        }
+
+        return entity;
     }
 }
@@ -0,0 +1,15 @@
+package ru.betuganova.Model;
+
+/**
+ * Represents how concurrent read-modify-write changes of the same bank accounts are kept apart.
+ * Only transfer batches read their accounts before changing them. Withdrawals, replenishments and single transfers
+ * change each balance in one statement in both modes, and single transfers take the application locks of their
+ * two accounts in both modes, so their conflicts are deadlocks or serialization failures rather than version checks.
+ */
+public enum AccountLocking {
+    /** Accounts are locked in the application and with {@code SELECT ... FOR UPDATE} before they are read. */
+    PESSIMISTIC,
+
+    /** Accounts are read without locks; a conflicting change fails on the version check and is retried. */
+    OPTIMISTIC
+}
@@ -0,0 +1,31 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Represents one page of a keyset-paginated result.
+ *
+ * @param <T> The type of the page items.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private Long nextCursor;
+
+    /**
+     * Constructs a new page.
+     *
+     * @param items The items of the page.
+     * @param nextCursor The cursor to request the next page with, or {@code null} if this is the last page.
+     */
+    public CursorPage(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the total of one type of transactions of a bank account on one UTC day.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailyTotal {
+    private LocalDate day;
+    private TransactionType transactionType;
+    private double totalAmount;
+    private long transactionCount;
+}
@@ -0,0 +1,24 @@
+package ru.betuganova.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the result of a request sent with an idempotency key: an HTTP status and a JSON body.
+ */
+@Getter
+@AllArgsConstructor
+public class IdempotentResult {
+    private final int status;
+    private final String body;
+    private final boolean replayed;
+
+    /**
+     * Returns the same result marked as replayed.
+     *
+     * @return The replayed result.
+     */
+    public IdempotentResult asReplay() {
+        return replayed ? this : new IdempotentResult(status, body, true);
+    }
+}
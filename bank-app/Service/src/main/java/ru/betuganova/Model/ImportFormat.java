@@ -0,0 +1,12 @@
+package ru.betuganova.Model;
+
+/**
+ * Represents the input formats accepted by the bulk import.
+ */
+public enum ImportFormat {
+    /** Comma-separated values with a header line naming the fields. */
+    CSV,
+
+    /** One JSON object per line. */
+    NDJSON
+}
@@ -0,0 +1,26 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Represents the kinds of records accepted by the bulk import, with the fields of each record.
+ */
+@Getter
+public enum ImportKind {
+    /** New users: login, name, age, gender and hair color. */
+    USERS(List.of("login", "name", "age", "gender", "hairColor")),
+
+    /** Friendships: the login of a user and the login of the friend added to their friend list. */
+    FRIENDSHIPS(List.of("login", "friendLogin")),
+
+    /** New bank accounts: the login of the owner and the opening balance. */
+    ACCOUNTS(List.of("login", "balance"));
+
+    private final List<String> fields;
+
+    ImportKind(List<String> fields) {
+        this.fields = fields;
+    }
+}
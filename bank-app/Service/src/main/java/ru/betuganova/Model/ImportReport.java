@@ -0,0 +1,43 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk import.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportReport {
+    private ImportKind kind;
+    private long rows;
+    private long imported;
+    private long rejected;
+    private double seconds;
+    private double rowsPerSecond;
+    private List<String> rejections;
+
+    /**
+     * Constructs a new import report.
+     *
+     * @param kind       The kind of the imported records.
+     * @param rows       The number of records read from the input.
+     * @param imported   The number of records written to the database.
+     * @param rejected   The number of invalid, duplicate or unresolvable records.
+     * @param seconds    The duration of the import.
+     * @param rejections The reasons of the first rejections.
+     */
+    public ImportReport(ImportKind kind, long rows, long imported, long rejected, double seconds, List<String> rejections) {
+        this.kind = kind;
+        this.rows = rows;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.seconds = seconds;
+        this.rowsPerSecond = seconds > 0 ? rows / seconds : rows;
+        this.rejections = rejections;
+    }
+}
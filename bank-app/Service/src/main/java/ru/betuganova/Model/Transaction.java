@@ -4,6 +4,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+
 /**
  * Represents a financial transaction associated with a bank account.
  */
@@ -11,9 +13,11 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 public class Transaction {
+    private Long id;
     private TransactionType transactionType;
     private double amount;
     private Long accountId;
+    private Instant createdAt;
 
     /**
      * Creates a new transaction with the specified type and amount.
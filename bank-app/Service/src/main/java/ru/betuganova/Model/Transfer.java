@@ -0,0 +1,30 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Represents a single money transfer between two bank accounts.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class Transfer {
+    private Long accountIdFrom;
+    private Long accountIdTo;
+    private double amount;
+
+    /**
+     * Constructs a new transfer.
+     *
+     * @param accountIdFrom The ID of the sender's bank account.
+     * @param accountIdTo The ID of the recipient's bank account.
+     * @param amount The amount to transfer.
+     */
+    public Transfer(Long accountIdFrom, Long accountIdTo, double amount) {
+        this.accountIdFrom = accountIdFrom;
+        this.accountIdTo = accountIdTo;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.betuganova.Model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Represents the result of a single transfer in a batch.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TransferResult {
+    private Long accountIdFrom;
+    private Long accountIdTo;
+    private double amount;
+    private TransferStatus status;
+    private String message;
+
+    /**
+     * Constructs a new transfer result.
+     *
+     * @param transfer The transfer the result belongs to.
+     * @param status The outcome of the transfer.
+     * @param message The reason of a rejection, or {@code null} if the transfer was completed.
+     */
+    public TransferResult(Transfer transfer, TransferStatus status, String message) {
+        this.accountIdFrom = transfer.getAccountIdFrom();
+        this.accountIdTo = transfer.getAccountIdTo();
+        this.amount = transfer.getAmount();
+        this.status = status;
+        this.message = message;
+    }
+}
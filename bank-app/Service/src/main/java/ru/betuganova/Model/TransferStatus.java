@@ -0,0 +1,12 @@
+package ru.betuganova.Model;
+
+/**
+ * Represents the outcome of a single transfer in a batch.
+ */
+public enum TransferStatus {
+    /** The transfer was applied. */
+    COMPLETED,
+
+    /** The transfer was not applied; the result message explains why. */
+    REJECTED
+}
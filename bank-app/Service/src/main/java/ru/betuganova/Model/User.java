@@ -20,6 +20,7 @@ public class User {
     private int gender;
     private HairColor hairColor;
     private Set<String> friends;
+    private long version;
 
     /**
      * Constructs a new user with the given attributes.
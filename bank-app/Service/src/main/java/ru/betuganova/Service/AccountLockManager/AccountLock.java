@@ -0,0 +1,30 @@
+package ru.betuganova.Service.AccountLockManager;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A set of account lock stripes held by the current thread.
+ */
+public class AccountLock implements AutoCloseable {
+    private final Lock[] locks;
+    private boolean released;
+
+    AccountLock(Lock[] locks) {
+        this.locks = locks;
+    }
+
+    /**
+     * Releases the held stripes in the reverse order of acquisition. Repeated calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+
+        released = true;
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.betuganova.Service.AccountLockManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Serializes balance changes on the same bank accounts inside one application instance.
+ * Account IDs are mapped onto a fixed set of lock stripes, and stripes are always taken in ascending order,
+ * so operations on several accounts can't deadlock each other.
+ */
+public interface AccountLockManager {
+    /**
+     * Locks the stripes of both accounts.
+     *
+     * @param firstAccountId  The ID of the first bank account.
+     * @param secondAccountId The ID of the second bank account.
+     * @return The held lock, released by {@link AccountLock#close()}.
+     */
+    AccountLock lock(long firstAccountId, long secondAccountId);
+
+    /**
+     * Locks the stripes of all given accounts.
+     *
+     * @param accountIds The IDs of the bank accounts.
+     * @return The held lock, released by {@link AccountLock#close()}.
+     */
+    AccountLock lock(Collection<Long> accountIds);
+
+    /**
+     * Returns wait time and contention statistics of the stripes that have been contended at least once.
+     *
+     * @return a list of {@link LockStripeStats} ordered by stripe index
+     */
+    List<LockStripeStats> getStripeStats();
+}
@@ -0,0 +1,140 @@
+package ru.betuganova.Service.AccountLockManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link AccountLockManager} interface backed by an array of {@link ReentrantLock} stripes.
+ * Every acquisition is recorded in the {@code bank.account.lock.wait} timer, and every acquisition that had to wait
+ * increments the {@code bank.account.lock.contended} counter of its stripe.
+ */
+@Component
+public class AccountLockManagerImpl implements AccountLockManager {
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+    private final ReentrantLock[] stripes;
+    private final LongAdder[] acquisitions;
+    private final LongAdder[] contentions;
+    private final LongAdder[] waitNanos;
+
+    /**
+     * Constructs an AccountLockManagerImpl with the given number of stripes.
+     *
+     * @param meterRegistry The registry the lock metrics are published to.
+     * @param stripeCount   The number of stripes, rounded up to a power of two.
+     */
+    @Autowired
+    public AccountLockManagerImpl(MeterRegistry meterRegistry,
+                                  @Value("${bank.account-locks.stripes:1024}") int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = Timer.builder("bank.account.lock.wait")
+                .description("Time spent waiting for account lock stripes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.stripes = new ReentrantLock[size];
+        this.acquisitions = new LongAdder[size];
+        this.contentions = new LongAdder[size];
+        this.waitNanos = new LongAdder[size];
+
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+            acquisitions[i] = new LongAdder();
+            contentions[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public AccountLock lock(long firstAccountId, long secondAccountId) {
+        int first = stripeOf(firstAccountId);
+        int second = stripeOf(secondAccountId);
+
+        if (first == second) {
+            return new AccountLock(new Lock[]{acquire(first)});
+        }
+
+        int lower = Math.min(first, second);
+        int upper = Math.max(first, second);
+        Lock lowerLock = acquire(lower);
+
+        return new AccountLock(new Lock[]{lowerLock, acquire(upper)});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public AccountLock lock(Collection<Long> accountIds) {
+        int[] indexes = accountIds.stream()
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        Lock[] held = new Lock[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            held[i] = acquire(indexes[i]);
+        }
+
+        return new AccountLock(held);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<LockStripeStats> getStripeStats() {
+        List<LockStripeStats> stats = new ArrayList<>();
+
+        for (int i = 0; i < stripes.length; i++) {
+            long contended = contentions[i].sum();
+            if (contended > 0) {
+                stats.add(new LockStripeStats(i, acquisitions[i].sum(), contended, waitNanos[i].sum()));
+            }
+        }
+
+        return stats;
+    }
+
+    private Lock acquire(int index) {
+        ReentrantLock lock = stripes[index];
+        acquisitions[index].increment();
+
+        if (lock.tryLock()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return lock;
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+
+        contentions[index].increment();
+        waitNanos[index].add(waited);
+        waitTimer.record(waited, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("bank.account.lock.contended", "stripe", String.valueOf(index)).increment();
+
+        return lock;
+    }
+
+    private int stripeOf(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripes.length - 1);
+    }
+}
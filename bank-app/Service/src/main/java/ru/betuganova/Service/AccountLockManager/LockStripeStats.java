@@ -0,0 +1,16 @@
+package ru.betuganova.Service.AccountLockManager;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the accumulated statistics of a single account lock stripe.
+ */
+@Getter
+@AllArgsConstructor
+public class LockStripeStats {
+    private int stripe;
+    private long acquisitions;
+    private long contentions;
+    private long totalWaitNanos;
+}
@@ -1,11 +1,22 @@
 package ru.betuganova.Service.AccountService;
 
+import ru.betuganova.Exception.InvalidDateRangeException;
+import ru.betuganova.Exception.InvalidTransferBatchException;
+import ru.betuganova.Exception.InvalidTransferException;
+import ru.betuganova.Exception.LedgerDisabledException;
 import ru.betuganova.Exception.NegativeBalanceException;
 import ru.betuganova.Model.BankAccount;
+import ru.betuganova.Model.CursorPage;
+import ru.betuganova.Model.DailyTotal;
 import ru.betuganova.Model.Transaction;
+import ru.betuganova.Model.Transfer;
+import ru.betuganova.Model.TransferResult;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing bank accounts.
@@ -30,19 +41,49 @@ public interface BankAccountService {
     double getBalance(long accountId);
 
     /**
-     * Retrieves a list of bank accounts associated with a specific user ID.
+     * Retrieves the balance a bank account of the current user had at a point in time.
+     * Only available in the ledger mode.
      *
-     * @param id the ID of the user whose bank accounts are to be retrieved
-     * @return a list of {@link BankAccount} objects belonging to the specified user
+     * @param accountId The ID of the bank account.
+     * @param at        The point in time.
+     * @return The balance of the account at that point in time.
+     * @throws NoSuchElementException  If the bank account is not found.
+     * @throws LedgerDisabledException If the ledger mode is disabled.
+     */
+    double getBalanceAt(long accountId, Instant at);
+
+    /**
+     * Retrieves a page of bank accounts associated with a specific user ID, ordered by ID.
+     * Accounts are returned with their transaction IDs only if requested.
+     *
+     * @param id                    the ID of the user whose bank accounts are to be retrieved
+     * @param after                 the cursor returned with the previous page, or 0 for the first page
+     * @param limit                 the maximum number of accounts in the page
+     * @param includeTransactionIds whether to fill the transaction ID history of the accounts
+     * @return a page of {@link BankAccount} objects belonging to the specified user
+     * @throws NoSuchElementException If the user is not found.
+     */
+    CursorPage<BankAccount> getAccountsByUserId(long id, long after, int limit, boolean includeTransactionIds);
+
+    /**
+     * Retrieves a page of all bank accounts in the system, ordered by ID.
+     * Accounts are returned with their transaction IDs only if requested.
+     *
+     * @param after                 the cursor returned with the previous page, or 0 for the first page
+     * @param limit                 the maximum number of accounts in the page
+     * @param includeTransactionIds whether to fill the transaction ID history of the accounts
+     * @return a page of {@link BankAccount} objects
      */
-    List<BankAccount> getAccountsByUserId(long id);
+    CursorPage<BankAccount> getAccounts(long after, int limit, boolean includeTransactionIds);
 
     /**
-     * Retrieves a list of all bank accounts in the system.
+     * Retrieves a version of the bank accounts of a user without loading them.
+     * The version changes whenever an account of the user is opened, its balance changes or a transaction is recorded.
      *
-     * @return a list of {@link BankAccount} objects representing all accounts
+     * @param userId the ID of the user
+     * @return an opaque version string
      */
-    List<BankAccount> getAccounts();
+    String getAccountsVersion(long userId);
 
     /**
      * Withdraws an amount from a bank account.
@@ -73,15 +114,65 @@ public interface BankAccountService {
      * @param amount        The amount to transfer.
      * @throws NoSuchElementException   If either bank account is not found.
      * @throws NegativeBalanceException If the sender's account balance is insufficient.
+     * @throws InvalidTransferException If the amount isn't positive or both accounts are the same.
      */
     void transferTo(long accountIdFrom, long accountIdTo, double amount);
 
     /**
-     * Retrieves a list of transactions filtered by transaction type and account ID.
+     * Applies a batch of transfers from accounts of the current user in one database transaction.
+     * Transfers are applied in order; a transfer that is invalid or not covered by the balance is rejected
+     * without affecting the others. Transfers are checked like in {@link #transferTo}.
+     *
+     * @param transfers The transfers to apply.
+     * @return The result of every transfer, in the order of the batch.
+     * @throws InvalidTransferBatchException If the batch is larger than the configured limit or contains
+     *                                       a {@code null} transfer.
+     */
+    List<TransferResult> transferBatch(List<Transfer> transfers);
+
+    /**
+     * Retrieves one page of transactions of a bank account of the current user, optionally filtered by
+     * transaction type.
+     * Transactions are ordered by ID, and a page contains transactions with IDs greater than the cursor.
+     * IDs are drawn from a sequence as transactions are inserted, so a transaction committed after a page was read
+     * has a higher ID than the cursor unless it was already in flight when the page was read.
+     *
+     * @param type      the type of the transaction (e.g., "WITHDRAWAL", "REPLENISHMENT", "TRANSFER_TO"),
+     *                  or {@code null} for all types
+     * @param accountId the ID of the bank account
+     * @param after     the cursor returned with the previous page, or 0 for the first page
+     * @param limit     the maximum number of transactions in the page
+     * @return a {@link CursorPage} of {@link Transaction} objects matching the specified criteria
+     * @throws NoSuchElementException If the bank account is not found or isn't owned by the current user.
+     */
+    CursorPage<Transaction> getTransactionsByTypeAndAccountId(String type, long accountId, long after, int limit);
+
+    /**
+     * Streams all transactions of a bank account of the current user to the consumer in ID order, optionally
+     * filtered by transaction type. Transactions are read in keyset pages of a fixed size, each in a short transaction
+     * of its own, so memory use doesn't depend on the length of the history and no database connection is held
+     * while the consumer is busy. Like the pages of {@link #getTransactionsByTypeAndAccountId}, the export isn't
+     * a snapshot: transactions committed during the export may be missed.
+     *
+     * @param type      the type of the transaction, or {@code null} for all types
+     * @param accountId the ID of the bank account
+     * @param consumer  receives the transactions one by one
+     * @throws NoSuchElementException If the bank account is not found or belongs to another user.
+     */
+    void exportTransactions(String type, long accountId, Consumer<Transaction> consumer);
+
+    /**
+     * Retrieves the daily totals of the current user's bank account by transaction type for a range of UTC days.
+     * Totals are read from rollups maintained together with the transactions, so the cost depends on
+     * the number of days in the range, not on the number of transactions.
      *
-     * @param type      the type of the transaction (e.g., "WITHDRAWAL", "REPLENISHMENT", "TRANSFER_TO")
      * @param accountId the ID of the bank account
-     * @return a list of {@link Transaction} objects matching the specified criteria
+     * @param from      the first day of the range
+     * @param to        the last day of the range, inclusive
+     * @return a list of {@link DailyTotal} objects ordered by day and transaction type, without days with no transactions
+     * @throws NoSuchElementException    If the bank account is not found.
+     * @throws InvalidDateRangeException If the range ends before it starts.
      */
-    List<Transaction> getTransactionsByTypeAndAccountId(String type, long accountId);
+    List<DailyTotal> getDailyTotals(long accountId, LocalDate from, LocalDate to)
+            throws NoSuchElementException, InvalidDateRangeException;
 }
@@ -1,25 +1,59 @@
 package ru.betuganova.Service.AccountService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.betuganova.Entity.UserEntity;
+import ru.betuganova.Exception.InvalidDateRangeException;
+import ru.betuganova.Exception.InvalidTransferBatchException;
+import ru.betuganova.Exception.InvalidTransferException;
+import ru.betuganova.Exception.LedgerDisabledException;
 import ru.betuganova.Exception.NegativeBalanceException;
 import ru.betuganova.Mapper.BankAccountMapper;
+import ru.betuganova.Mapper.DailyTotalMapper;
 import ru.betuganova.Mapper.TransactionMapper;
-import ru.betuganova.Mapper.UserMapper;
 import ru.betuganova.Entity.BankAccountEntity;
+import ru.betuganova.Entity.TransactionEntity;
+import ru.betuganova.Model.AccountLocking;
 import ru.betuganova.Model.BankAccount;
+import ru.betuganova.Model.CursorPage;
+import ru.betuganova.Model.DailyTotal;
 import ru.betuganova.Model.Transaction;
 import ru.betuganova.Model.TransactionType;
-import ru.betuganova.Model.User;
+import ru.betuganova.Model.Transfer;
+import ru.betuganova.Model.TransferResult;
+import ru.betuganova.Model.TransferStatus;
+import ru.betuganova.Projection.BankAccountView;
+import ru.betuganova.Projection.TransactionIdView;
+import ru.betuganova.Projection.TransactionView;
+import ru.betuganova.Repository.AccountDailyTotalRepository;
 import ru.betuganova.Repository.BankAccountRepository;
+import ru.betuganova.Repository.TransactionRepository;
 import ru.betuganova.Repository.UserRepository;
+import ru.betuganova.Service.AccountLockManager.AccountLock;
+import ru.betuganova.Service.AccountLockManager.AccountLockManager;
+import ru.betuganova.Service.ConflictRetry.ConflictingAccount;
+import ru.betuganova.Service.ConflictRetry.RetryOnConflict;
 import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
-
+import ru.betuganova.Service.FriendshipIndex.FriendshipIndex;
+import ru.betuganova.Service.Ledger.Ledger;
+import ru.betuganova.Service.TransactionLogWriter.TransactionLogWriter;
+import ru.betuganova.Service.UserIdCache.UserIdCache;
+import ru.betuganova.Util.TransactionHooks;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -29,28 +63,81 @@ import java.util.stream.Collectors;
  */
 @Service
 public class BankAccountServiceImpl implements BankAccountService {
+    private static final int MAX_TRANSACTIONS_PAGE_SIZE = 1000;
+    private static final int MAX_ACCOUNTS_PAGE_SIZE = 1000;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final BankAccountRepository bankAccountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountDailyTotalRepository accountDailyTotalRepository;
     private final CurrentUserManager currentUserManager;
-    private final UserMapper userMapper;
+    private final AccountLockManager accountLockManager;
+    private final FriendshipIndex friendshipIndex;
+    private final UserIdCache userIdCache;
+    private final Ledger ledger;
+    private final TransactionLogWriter transactionLogWriter;
     private final BankAccountMapper bankAccountMapper;
     private final TransactionMapper transactionMapper;
+    private final DailyTotalMapper dailyTotalMapper;
+    private final int maxTransferBatchSize;
+    private final AccountLocking accountLocking;
 
     /**
      * Constructs a BankAccountServiceImpl with the required repositories and user manager.
      *
      * @param currentUserManager    Manages the currently authenticated user.
+     * @param accountLockManager    Serializes transfers between the same accounts.
+     * @param friendshipIndex       Answers whether the recipient is a friend of the sender.
+     * @param userIdCache           Resolves the current user's ID and account IDs without loading entities.
+     * @param ledger                Derives balances from the transaction log when the ledger mode is enabled.
+     * @param transactionLogWriter  Records transactions in the background when the write-behind mode is enabled.
+     * @param bankAccountMapper     Maps bank account entities to models.
+     * @param transactionMapper     Maps transaction entities to models.
+     * @param dailyTotalMapper      Maps daily total entities to models.
+     * @param maxTransferBatchSize  The maximum number of transfers accepted in one batch.
+     * @param accountLocking        How transfer batches keep concurrent changes of their accounts apart.
      */
     @Autowired
     public BankAccountServiceImpl(CurrentUserManager currentUserManager,
                                   UserRepository userRepository,
-                                  BankAccountRepository bankAccountRepository) {
+                                  BankAccountRepository bankAccountRepository,
+                                  TransactionRepository transactionRepository,
+                                  AccountDailyTotalRepository accountDailyTotalRepository,
+                                  AccountLockManager accountLockManager,
+                                  FriendshipIndex friendshipIndex,
+                                  UserIdCache userIdCache,
+                                  Ledger ledger,
+                                  TransactionLogWriter transactionLogWriter,
+                                  BankAccountMapper bankAccountMapper,
+                                  TransactionMapper transactionMapper,
+                                  DailyTotalMapper dailyTotalMapper,
+                                  @Value("${bank.transfers.max-batch-size:10000}") int maxTransferBatchSize,
+                                  @Value("${bank.accounts.locking:PESSIMISTIC}") AccountLocking accountLocking) {
         this.userRepository = userRepository;
         this.bankAccountRepository = bankAccountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountDailyTotalRepository = accountDailyTotalRepository;
         this.currentUserManager = currentUserManager;
-        this.userMapper = new UserMapper(userRepository);
-        this.bankAccountMapper = new BankAccountMapper();
-        this.transactionMapper = new TransactionMapper();
+        this.accountLockManager = accountLockManager;
+        this.friendshipIndex = friendshipIndex;
+        this.userIdCache = userIdCache;
+        if (ledger.isEnabled() && transactionLogWriter.isEnabled()) {
+            throw new IllegalStateException(
+                    "bank.ledger.enabled and bank.transactions.write-behind.enabled can't be used together");
+        }
+        if (ledger.isEnabled() && accountLocking == AccountLocking.OPTIMISTIC) {
+            throw new IllegalStateException(
+                    "bank.accounts.locking=OPTIMISTIC can't be used with bank.ledger.enabled");
+        }
+
+        this.ledger = ledger;
+        this.transactionLogWriter = transactionLogWriter;
+        this.bankAccountMapper = bankAccountMapper;
+        this.transactionMapper = transactionMapper;
+        this.dailyTotalMapper = dailyTotalMapper;
+        this.maxTransferBatchSize = maxTransferBatchSize;
+        this.accountLocking = accountLocking;
     }
 
     /**
@@ -58,15 +145,16 @@ public class BankAccountServiceImpl implements BankAccountService {
      */
     @Transactional
     public long createBankAccount(double balance) throws NoSuchElementException {
-        String currentUserLogin = currentUserManager.getCurrentUser().getLogin();
-        UserEntity user = userRepository.findByLogin(currentUserLogin);
+        long userId = currentUserId();
 
-        if (user == null) {
-            throw new NoSuchElementException("User with login: '" + currentUserLogin + "' wasn't found");
+        BankAccountEntity bankAccount = new BankAccountEntity(balance, userId);
+        bankAccountRepository.saveAndFlush(bankAccount);
+
+        if (ledger.isEnabled()) {
+            ledger.open(bankAccount.getId(), balance);
         }
 
-        BankAccountEntity bankAccount = new BankAccountEntity(balance, user.getId());
-        bankAccountRepository.save(bankAccount);
+        TransactionHooks.afterCommit(() -> userIdCache.invalidateAccounts(userId));
 
         return bankAccount.getId();
     }
@@ -74,156 +162,468 @@ public class BankAccountServiceImpl implements BankAccountService {
     /**
      * {@inheritDoc}
      */
+    @Transactional(readOnly = true)
     public double getBalance(long accountId) throws NoSuchElementException {
-        Long userId = userRepository.findByLogin(currentUserManager.getCurrentUser().getLogin()).getId();
-        BankAccountEntity bankAccount = bankAccountRepository.findByIdAndUserId(accountId, userId);
+        long userId = currentUserId();
+        Double balance;
+        if (ledger.isEnabled()) {
+            balance = ownsAccount(userId, accountId) ? ledger.getBalances(List.of(accountId)).get(accountId) : null;
+        } else {
+            balance = bankAccountRepository.findBalanceByIdAndUserId(accountId, userId);
+        }
 
-        if (bankAccount == null) {
+        if (balance == null) {
             throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
         }
 
-        return bankAccount.getBalance();
+        return balance;
     }
 
     /**
      * {@inheritDoc}
      */
-    public List<BankAccount> getAccountsByUserId(long id) throws NoSuchElementException {
-        return userRepository.findById(id)
-                .map(user -> bankAccountRepository.findByUserId(user.getId()))
-                .orElseThrow(() -> new NoSuchElementException("User with id " + id + " not found"))
-                .stream()
-                .map(bankAccountMapper::toModel)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<BankAccount> getAccountsByUserId(long id, long after, int limit, boolean includeTransactionIds)
+            throws NoSuchElementException {
+
+        if (!userRepository.existsById(id)) {
+            throw new NoSuchElementException("User with id " + id + " not found");
+        }
+
+        int pageSize = accountsPageSize(limit);
+        return toAccountsPage(bankAccountRepository.findPageByUserId(id, after, Limit.of(pageSize + 1)),
+                pageSize, includeTransactionIds);
     }
 
     /**
      * {@inheritDoc}
      */
-    public List<BankAccount> getAccounts() {
-        return bankAccountRepository.findAll()
-                .stream()
-                .map(bankAccountMapper::toModel)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<BankAccount> getAccounts(long after, int limit, boolean includeTransactionIds) {
+        int pageSize = accountsPageSize(limit);
+        return toAccountsPage(bankAccountRepository.findPage(after, Limit.of(pageSize + 1)),
+                pageSize, includeTransactionIds);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Transactional
-    public double withdraw(long accountId, double amount) throws NoSuchElementException, NegativeBalanceException {
-        Long userId = userRepository.findByLogin(currentUserManager.getCurrentUser().getLogin()).getId();
-        BankAccountEntity bankAccount = bankAccountRepository.findByIdAndUserId(accountId, userId);
+    @Transactional(readOnly = true)
+    public String getAccountsVersion(long userId) {
+        return bankAccountRepository.findAccountsVersionByUserId(userId);
+    }
 
-        if (bankAccount == null) {
-            throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @RetryOnConflict
+    @Transactional
+    public double withdraw(@ConflictingAccount long accountId, double amount)
+            throws NoSuchElementException, NegativeBalanceException {
+        long userId = currentUserId();
+        Double newBalance = debit(accountId, userId, amount, TransactionType.WITHDRAWAL);
 
-        double newBalance = bankAccount.getBalance() - amount;
-        bankAccount.setBalance(newBalance);
-        bankAccountRepository.save(bankAccount);
+        if (newBalance == null) {
+            if (!ownsAccount(userId, accountId)) {
+                throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
+            }
 
-        if (newBalance < 0) {
             throw new NegativeBalanceException("Amount is more than current balance");
         }
 
-        Transaction transactionDTO = new Transaction(TransactionType.WITHDRAWAL, accountId, amount);
-        bankAccount.addTransaction(transactionMapper.toEntity(transactionDTO));
-        bankAccountRepository.save(bankAccount);
-
         return newBalance;
     }
 
     /**
      * {@inheritDoc}
      */
+    @RetryOnConflict
     @Transactional
-    public double replenish(long accountId, double amount) throws NoSuchElementException {
-        Long userId = userRepository.findByLogin(currentUserManager.getCurrentUser().getLogin()).getId();
-        BankAccountEntity bankAccount = bankAccountRepository.findByIdAndUserId(accountId, userId);
+    public double replenish(@ConflictingAccount long accountId, double amount) throws NoSuchElementException {
+        long userId = currentUserId();
+        Double newBalance = credit(accountId, userId, amount, TransactionType.REPLENISHMENT);
 
-        if (bankAccount == null) {
+        if (newBalance == null) {
             throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
         }
 
-        double newBalance = bankAccount.getBalance() + amount;
-        bankAccount.setBalance(newBalance);
-        bankAccountRepository.save(bankAccount);
-
-        Transaction transactionDTO = new Transaction(TransactionType.REPLENISHMENT, accountId, amount);
-        bankAccount.addTransaction(transactionMapper.toEntity(transactionDTO));
-        bankAccountRepository.save(bankAccount);
-
         return newBalance;
     }
 
     /**
      * {@inheritDoc}
      */
+    @RetryOnConflict
     @Transactional
-    public void transferTo(long accountIdFrom, long accountIdTo, double amount)
-            throws NoSuchElementException, NegativeBalanceException {
+    public void transferTo(@ConflictingAccount long accountIdFrom, @ConflictingAccount long accountIdTo,
+                           double amount)
+            throws NoSuchElementException, NegativeBalanceException, InvalidTransferException {
 
-        User currentUser = currentUserManager.getCurrentUser();
+        TransferValidator.validate(accountIdFrom, accountIdTo, amount);
+        holdUntilCompletion(accountLockManager.lock(accountIdFrom, accountIdTo));
 
-        BankAccountEntity bankAccountTo = bankAccountRepository.findByAccountId(accountIdTo);
-        Long userId = userRepository.findByLogin(currentUserManager.getCurrentUser().getLogin()).getId();
-        BankAccountEntity bankAccountFrom = bankAccountRepository.findByIdAndUserId(accountIdFrom, userId);
+        long userId = currentUserId();
+        Long recipientUserId = bankAccountRepository.findUserIdByAccountId(accountIdTo);
 
-        if (bankAccountFrom == null) {
-            throw new NoSuchElementException("Bank account with id: '" + accountIdFrom + "' wasn't found");
-        }
-        if (bankAccountTo == null) {
+        if (recipientUserId == null) {
             throw new NoSuchElementException("Bank account with id: '" + accountIdTo + "' wasn't found");
         }
 
-        List<UserEntity> friends = userRepository.findFriendsByUserLogin(userMapper.toEntity(currentUser).getLogin());
-        UserEntity friend = friends
-                .stream()
-                .filter(f -> f.getId().equals(bankAccountTo.getUserId()))
-                .findFirst()
-                .orElse(null);
+        double commissionFreePercent = commissionFreePercent(
+                userId, recipientUserId, friendshipIndex.areFriends(userId, recipientUserId));
+
+        Double balanceFrom = debit(accountIdFrom, userId, amount, TransactionType.TRANSFER_FROM);
+
+        if (balanceFrom == null) {
+            if (!ownsAccount(userId, accountIdFrom)) {
+                throw new NoSuchElementException("Bank account with id: '" + accountIdFrom + "' wasn't found");
+            }
+
+            throw new NegativeBalanceException("Amount for transfer is more than current balance");
+        }
+
+        credit(accountIdTo, null, commissionFreePercent * amount, TransactionType.TRANSFER_TO);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @RetryOnConflict
+    @Transactional
+    public List<TransferResult> transferBatch(List<Transfer> transfers) throws InvalidTransferBatchException {
+        if (transfers.size() > maxTransferBatchSize) {
+            throw new InvalidTransferBatchException(
+                    "Batch contains more than " + maxTransferBatchSize + " transfers");
+        }
+        if (transfers.contains(null)) {
+            throw new InvalidTransferBatchException("Batch contains an empty transfer");
+        }
+
+        long userId = currentUserId();
+
+        Set<Long> accountIds = new HashSet<>();
+        for (Transfer transfer : transfers) {
+            if (transfer.getAccountIdFrom() != null) {
+                accountIds.add(transfer.getAccountIdFrom());
+            }
+            if (transfer.getAccountIdTo() != null) {
+                accountIds.add(transfer.getAccountIdTo());
+            }
+        }
+
+        boolean optimistic = accountLocking == AccountLocking.OPTIMISTIC;
+        if (!optimistic) {
+            holdUntilCompletion(accountLockManager.lock(accountIds));
+        }
 
-        double commissionFreePercent;
+        Map<Long, BankAccountEntity> accounts = new HashMap<>();
+        Map<Long, Double> balances = new HashMap<>();
+        if (!accountIds.isEmpty()) {
+            for (BankAccountEntity bankAccount : optimistic
+                    ? bankAccountRepository.findAllById(accountIds)
+                    : bankAccountRepository.findAllByIdForUpdate(accountIds)) {
+                accounts.put(bankAccount.getId(), bankAccount);
+                balances.put(bankAccount.getId(), bankAccount.getBalance());
+            }
+            if (ledger.isEnabled()) {
+                balances.putAll(ledger.getBalances(accounts.keySet()));
+            }
+        }
 
-        if (Objects.equals(bankAccountFrom.getId(), bankAccountTo.getUserId())) {
-            commissionFreePercent = 1;
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<TransactionEntity> records = new ArrayList<>(transfers.size() * 2);
+
+        for (Transfer transfer : transfers) {
+            BankAccountEntity bankAccountFrom = accounts.get(transfer.getAccountIdFrom());
+            BankAccountEntity bankAccountTo = accounts.get(transfer.getAccountIdTo());
+            double amount = transfer.getAmount();
+            String rejection = TransferValidator.rejectionOf(
+                    transfer.getAccountIdFrom(), transfer.getAccountIdTo(), amount);
+
+            if (rejection == null) {
+                if (bankAccountFrom == null || bankAccountFrom.getUserId() != userId) {
+                    rejection = "Bank account with id: '" + transfer.getAccountIdFrom() + "' wasn't found";
+                } else if (bankAccountTo == null) {
+                    rejection = "Bank account with id: '" + transfer.getAccountIdTo() + "' wasn't found";
+                } else if (balances.get(bankAccountFrom.getId()) < amount) {
+                    rejection = "Amount for transfer is more than current balance";
+                }
+            }
+
+            if (rejection != null) {
+                results.add(new TransferResult(transfer, TransferStatus.REJECTED, rejection));
+                continue;
+            }
+
+            double commissionFreePercent = commissionFreePercent(
+                    userId, bankAccountTo.getUserId(), friendshipIndex.areFriends(userId, bankAccountTo.getUserId()));
+
+            balances.merge(bankAccountFrom.getId(), -amount, Double::sum);
+            balances.merge(bankAccountTo.getId(), amount * commissionFreePercent, Double::sum);
+
+            records.add(new TransactionEntity(
+                    TransactionType.TRANSFER_FROM.name(), bankAccountFrom.getId(), amount));
+            records.add(new TransactionEntity(
+                    TransactionType.TRANSFER_TO.name(), bankAccountTo.getId(), amount * commissionFreePercent));
+            results.add(new TransferResult(transfer, TransferStatus.COMPLETED, null));
+        }
 
-        } else if (friend != null) {
-            commissionFreePercent = 0.97;
+        if (transactionLogWriter.isEnabled()) {
+            for (TransactionEntity record : records) {
+                transactionLogWriter.record(record.getAccountId(), record.getTransactionType(), record.getAmount());
+            }
+        } else if (!records.isEmpty()) {
+            insertAll(records);
+        }
 
+        if (ledger.isEnabled()) {
+            ledger.snapshotIfDue(records.stream().map(TransactionEntity::getAccountId).collect(Collectors.toSet()));
         } else {
-            commissionFreePercent = 0.9;
+            for (BankAccountEntity bankAccount : accounts.values()) {
+                bankAccount.setBalance(balances.get(bankAccount.getId()));
+            }
         }
 
-        double balanceFrom = bankAccountFrom.getBalance() - amount;
-        double balanceTo = bankAccountTo.getBalance() + amount * commissionFreePercent;
+        return results;
+    }
 
-        if (balanceFrom < 0) {
-            throw new NegativeBalanceException("Amount for transfer is more than current balance");
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true)
+    public double getBalanceAt(long accountId, Instant at) throws NoSuchElementException, LedgerDisabledException {
+        if (!ledger.isEnabled()) {
+            throw new LedgerDisabledException("Balances at a point in time are only available in the ledger mode");
+        }
+        if (!ownsAccount(currentUserId(), accountId)) {
+            throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
         }
 
-        Transaction transactionFrom = new Transaction(TransactionType.TRANSFER_FROM, accountIdFrom, amount);
-        Transaction transactionTo = new Transaction(TransactionType.TRANSFER_TO, accountIdTo, commissionFreePercent * amount);
+        return ledger.getBalanceAt(accountId, at);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Transaction> getTransactionsByTypeAndAccountId(String type, long accountId, long after, int limit)
+            throws NoSuchElementException {
+
+        if (!ownsAccount(currentUserId(), accountId)) {
+            throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_TRANSACTIONS_PAGE_SIZE));
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<TransactionEntity> transactions = type == null
+                ? transactionRepository.findPageByAccountId(accountId, after, fetchLimit)
+                : transactionRepository.findPageByAccountIdAndType(accountId, type.toUpperCase(), after, fetchLimit);
+
+        Long nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            nextCursor = transactions.get(pageSize - 1).getId();
+        }
+
+        return new CursorPage<>(
+                transactions.stream()
+                        .map(transactionMapper::toModel)
+                        .collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void exportTransactions(String type, long accountId, Consumer<Transaction> consumer)
+            throws NoSuchElementException {
 
-        bankAccountFrom.setBalance(balanceFrom);
-        bankAccountFrom.addTransaction(transactionMapper.toEntity(transactionFrom));
-        bankAccountRepository.save(bankAccountFrom);
+        if (!ownsAccount(currentUserId(), accountId)) {
+            throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
+        }
 
-        bankAccountTo.setBalance(balanceTo);
-        bankAccountTo.addTransaction(transactionMapper.toEntity(transactionTo));
-        bankAccountRepository.save(bankAccountTo);
+        // Every page is read in a read-only transaction of its own, so no connection is held while the consumer
+        // writes to a slow client.
+        Limit pageLimit = Limit.of(EXPORT_PAGE_SIZE);
+        long after = 0;
+        List<TransactionView> page;
+        do {
+            page = type == null
+                    ? transactionRepository.findViewPageByAccountId(accountId, after, pageLimit)
+                    : transactionRepository.findViewPageByAccountIdAndType(
+                            accountId, type.toUpperCase(), after, pageLimit);
+
+            for (TransactionView transaction : page) {
+                consumer.accept(transactionMapper.toModel(transaction));
+                after = transaction.getId();
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
     }
 
     /**
      * {@inheritDoc}
      */
-    public List<Transaction> getTransactionsByTypeAndAccountId(String type, long accountId) throws NoSuchElementException {
-        return bankAccountRepository.findById(accountId)
-                .orElseThrow(() -> new NoSuchElementException("Account not found"))
-                .getTransactionHistory().stream()
-                .filter(t -> type == null || t.getTransactionType().equalsIgnoreCase(type))
-                .map(transactionMapper::toModel)
+    @Transactional(readOnly = true)
+    public List<DailyTotal> getDailyTotals(long accountId, LocalDate from, LocalDate to)
+            throws NoSuchElementException, InvalidDateRangeException {
+
+        if (to.isBefore(from)) {
+            throw new InvalidDateRangeException("The range ends before it starts");
+        }
+        if (!ownsAccount(currentUserId(), accountId)) {
+            throw new NoSuchElementException("Bank account with id: '" + accountId + "' wasn't found");
+        }
+
+        return accountDailyTotalRepository.findByAccountIdAndDays(accountId, from, to).stream()
+                .map(dailyTotalMapper::toModel)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Inserts the records with one statement, so their ids are drawn as they are inserted, like those of the single
+     * transactions recorded by the balance updates.
+     */
+    private void insertAll(List<TransactionEntity> records) {
+        String[] transactionTypes = new String[records.size()];
+        double[] amounts = new double[records.size()];
+        long[] accountIds = new long[records.size()];
+
+        for (int i = 0; i < records.size(); i++) {
+            transactionTypes[i] = records.get(i).getTransactionType();
+            amounts[i] = records.get(i).getAmount();
+            accountIds[i] = records.get(i).getAccountId();
+        }
+
+        transactionRepository.insertAll(transactionTypes, amounts, accountIds);
+    }
+
+    private long currentUserId() throws NoSuchElementException {
+        String login = currentUserManager.getCurrentUser().getLogin();
+        Long userId = userIdCache.getUserId(login);
+
+        if (userId == null) {
+            throw new NoSuchElementException("User with login: '" + login + "' wasn't found");
+        }
+
+        return userId;
+    }
+
+    /**
+     * Withdraws the amount and records the transaction in the enabled mode: as a ledger entry, as a queued
+     * write-behind record after a balance-only update, or together with the balance update in one statement.
+     *
+     * @return The updated balance, or {@code null} if the account wasn't found or the balance is insufficient.
+     */
+    private Double debit(long accountId, long userId, double amount, TransactionType type) {
+        if (ledger.isEnabled()) {
+            return ledger.debit(accountId, userId, amount, type.name());
+        }
+        if (!transactionLogWriter.isEnabled()) {
+            return bankAccountRepository.debitAndRecord(accountId, userId, amount, type.name());
+        }
+
+        Double balance = bankAccountRepository.debit(accountId, userId, amount);
+        if (balance != null) {
+            transactionLogWriter.record(accountId, type.name(), amount);
+        }
+
+        return balance;
+    }
+
+    /**
+     * Deposits the amount and records the transaction like {@link #debit}. A {@code null} user ID
+     * credits the account regardless of its owner.
+     *
+     * @return The updated balance, or {@code null} if the account wasn't found.
+     */
+    private Double credit(long accountId, Long userId, double amount, TransactionType type) {
+        if (ledger.isEnabled()) {
+            return userId == null
+                    ? ledger.credit(accountId, amount, type.name())
+                    : ledger.credit(accountId, userId, amount, type.name());
+        }
+        if (!transactionLogWriter.isEnabled()) {
+            return userId == null
+                    ? bankAccountRepository.creditAndRecord(accountId, amount, type.name())
+                    : bankAccountRepository.creditAndRecord(accountId, userId, amount, type.name());
+        }
+
+        Double balance = userId == null
+                ? bankAccountRepository.credit(accountId, amount)
+                : bankAccountRepository.credit(accountId, userId, amount);
+        if (balance != null) {
+            transactionLogWriter.record(accountId, type.name(), amount);
+        }
+
+        return balance;
+    }
+
+    /**
+     * Keeps the stripes locked until the current transaction ends. If the release can't be registered,
+     * e.g. without an active transaction, the stripes are released right away and the failure is rethrown.
+     */
+    private static void holdUntilCompletion(AccountLock accountLock) {
+        try {
+            TransactionHooks.afterCompletion(accountLock::close);
+        } catch (RuntimeException e) {
+            accountLock.close();
+            throw e;
+        }
+    }
+
+    private boolean ownsAccount(long userId, long accountId) {
+        if (userIdCache.getAccountIds(userId).contains(accountId)) {
+            return true;
+        }
+
+        userIdCache.invalidateAccounts(userId);
+        return userIdCache.getAccountIds(userId).contains(accountId);
+    }
+
+    private static int accountsPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_ACCOUNTS_PAGE_SIZE));
+    }
+
+    /**
+     * Maps one more account than the page size to a page, taking the ledger balances in the ledger mode
+     * and the transaction IDs only if requested.
+     */
+    private CursorPage<BankAccount> toAccountsPage(List<BankAccountView> bankAccounts, int pageSize,
+                                                   boolean includeTransactionIds) {
+        Long nextCursor = null;
+        if (bankAccounts.size() > pageSize) {
+            bankAccounts = bankAccounts.subList(0, pageSize);
+            nextCursor = bankAccounts.get(pageSize - 1).getId();
+        }
+
+        Map<Long, BankAccount> accountsById = new LinkedHashMap<>();
+        for (BankAccountView bankAccount : bankAccounts) {
+            BankAccount model = bankAccountMapper.toModel(bankAccount);
+            accountsById.put(model.getId(), model);
+        }
+
+        if (ledger.isEnabled() && !accountsById.isEmpty()) {
+            ledger.getBalances(accountsById.keySet())
+                    .forEach((accountId, balance) -> accountsById.get(accountId).setBalance(balance));
+        }
+
+        if (includeTransactionIds && !accountsById.isEmpty()) {
+            accountsById.values().forEach(account -> account.setTransactionIdHistory(new ArrayList<>()));
+
+            for (TransactionIdView transaction : transactionRepository.findIdsByAccountIds(accountsById.keySet())) {
+                accountsById.get(transaction.getAccountId()).getTransactionIdHistory().add(transaction.getId());
+            }
+        }
+
+        return new CursorPage<>(new ArrayList<>(accountsById.values()), nextCursor);
+    }
+
+    private static double commissionFreePercent(Long userId, Long recipientUserId, boolean isFriend) {
+        if (Objects.equals(userId, recipientUserId)) {
+            return 1;
+        }
+
+        return isFriend ? 0.97 : 0.9;
+    }
 }
@@ -0,0 +1,47 @@
+package ru.betuganova.Service.AccountService;
+
+import ru.betuganova.Exception.InvalidTransferException;
+
+/**
+ * Checks the parts of a transfer that don't depend on the stored accounts, so that single and batched
+ * transfers accept the same requests.
+ */
+final class TransferValidator {
+    private TransferValidator() {
+    }
+
+    /**
+     * Checks a transfer.
+     *
+     * @param accountIdFrom The ID of the sender's bank account.
+     * @param accountIdTo   The ID of the recipient's bank account.
+     * @param amount        The amount to transfer.
+     * @return Why the transfer is invalid, or {@code null} if it is valid.
+     */
+    static String rejectionOf(Long accountIdFrom, Long accountIdTo, double amount) {
+        if (accountIdFrom == null || accountIdTo == null) {
+            return "Transfer must name both accounts";
+        }
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            return "Amount for transfer must be a positive number";
+        }
+        if (accountIdFrom.equals(accountIdTo)) {
+            return "Transfer must be made between different accounts";
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks a transfer like {@link #rejectionOf} and throws if it is invalid.
+     *
+     * @throws InvalidTransferException If the transfer is invalid.
+     */
+    static void validate(Long accountIdFrom, Long accountIdTo, double amount) throws InvalidTransferException {
+        String rejection = rejectionOf(accountIdFrom, accountIdTo, amount);
+
+        if (rejection != null) {
+            throw new InvalidTransferException(rejection);
+        }
+    }
+}
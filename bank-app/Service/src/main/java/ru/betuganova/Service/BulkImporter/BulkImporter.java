@@ -0,0 +1,31 @@
+package ru.betuganova.Service.BulkImporter;
+
+import ru.betuganova.Exception.InvalidImportException;
+import ru.betuganova.Model.ImportFormat;
+import ru.betuganova.Model.ImportKind;
+import ru.betuganova.Model.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads large numbers of users, friendships and bank accounts without going through the per-record API.
+ */
+public interface BulkImporter {
+    /**
+     * Streams records from the input into the database. Invalid records, users with an existing login,
+     * existing friendships and records referring to unknown logins are rejected and counted; the rest is imported.
+     * The input is committed in chunks, so a failing import keeps the chunks committed before the failure.
+     * The input must be trusted: accounts are opened with the imported balances and friendships change commission
+     * rates, so the import is only run by operators through the {@code BulkImport} command and isn't exposed over HTTP.
+     *
+     * @param kind   The kind of the records.
+     * @param format The format of the input.
+     * @param input  The input, read to the end but not closed.
+     * @return The numbers of read, imported and rejected records and the import rate.
+     * @throws InvalidImportException If the input lacks one of the fields of the records.
+     * @throws IOException If the input can't be read.
+     */
+    ImportReport importRecords(ImportKind kind, ImportFormat format, InputStream input)
+            throws InvalidImportException, IOException;
+}
@@ -0,0 +1,417 @@
+package ru.betuganova.Service.BulkImporter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.betuganova.Exception.InvalidImportException;
+import ru.betuganova.Model.HairColor;
+import ru.betuganova.Model.ImportFormat;
+import ru.betuganova.Model.ImportKind;
+import ru.betuganova.Model.ImportReport;
+import ru.betuganova.Service.FriendshipIndex.FriendshipIndex;
+import ru.betuganova.Service.Ledger.Ledger;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Implementation of the {@link BulkImporter} interface.
+ * Records are validated while they are read and streamed with {@code COPY ... FROM STDIN} into a temporary
+ * staging table. Every {@code bank.import.chunk-size} records the staging table is merged into the target table
+ * with a single {@code INSERT ... SELECT}, which resolves logins to user IDs with a join and skips conflicting
+ * rows, and the chunk is committed. Heap use doesn't depend on the size of the input.
+ * The friendship index is rebuilt after friendships are imported.
+ */
+@Slf4j
+@Component
+public class BulkImporterImpl implements BulkImporter {
+    private static final int MAX_REJECTIONS_REPORTED = 100;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final FriendshipIndex friendshipIndex;
+    private final Ledger ledger;
+    private final int chunkSize;
+
+    /**
+     * Constructs a BulkImporterImpl.
+     *
+     * @param friendshipIndex The index rebuilt after friendships are imported.
+     * @param ledger          Opens the ledgers of imported accounts when the ledger mode is enabled.
+     * @param chunkSize       The number of records committed at a time.
+     */
+    @Autowired
+    public BulkImporterImpl(DataSource dataSource,
+                            ObjectMapper objectMapper,
+                            FriendshipIndex friendshipIndex,
+                            Ledger ledger,
+                            @Value("${bank.import.chunk-size:100000}") int chunkSize) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.friendshipIndex = friendshipIndex;
+        this.ledger = ledger;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ImportReport importRecords(ImportKind kind, ImportFormat format, InputStream input)
+            throws InvalidImportException, IOException {
+
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+        Function<String, String[]> parser = format == ImportFormat.CSV
+                ? csvParser(kind, reader.readLine())
+                : ndjsonParser(kind);
+
+        long rows = 0;
+        long imported = 0;
+        long parseRejected = 0;
+        List<String> rejections = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            PGCopyOutputStream copyStream = null;
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(createStagingSql(kind));
+
+                long line = format == ImportFormat.CSV ? 1 : 0;
+                long chunkRows = 0;
+                copyStream = openCopy(connection, kind);
+                Writer copy = writer(copyStream);
+                String text;
+
+                while ((text = reader.readLine()) != null) {
+                    line++;
+                    if (text.isBlank()) {
+                        continue;
+                    }
+
+                    rows++;
+                    try {
+                        writeStagingRow(kind, parser.apply(text), copy);
+                        chunkRows++;
+                    } catch (InvalidImportException e) {
+                        parseRejected++;
+                        if (rejections.size() < MAX_REJECTIONS_REPORTED) {
+                            rejections.add("Line " + line + ": " + e.getMessage());
+                        }
+                    }
+
+                    if (chunkRows == chunkSize) {
+                        copy.close();
+                        imported += merge(connection, kind);
+                        connection.commit();
+                        chunkRows = 0;
+                        copyStream = openCopy(connection, kind);
+                        copy = writer(copyStream);
+                    }
+                }
+
+                copy.close();
+                imported += merge(connection, kind);
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (copyStream != null && copyStream.isActive()) {
+                    copyStream.cancelCopy();
+                }
+                connection.rollback();
+                log.error("Import of {} failed after {} imported records", kind, imported, e);
+                throw e;
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS " + stagingTable(kind));
+                    connection.commit();
+                }
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Import of " + kind + " failed", e);
+        }
+
+        if (kind == ImportKind.FRIENDSHIPS) {
+            friendshipIndex.rebuild();
+        }
+
+        long conflicting = rows - parseRejected - imported;
+        if (conflicting > 0) {
+            rejections.add(conflicting + " records duplicated existing data or referred to unknown logins");
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Imported {} of {} {} records in {} s", imported, rows, kind, seconds);
+
+        return new ImportReport(kind, rows, imported, rows - imported, seconds, rejections);
+    }
+
+    private static PGCopyOutputStream openCopy(Connection connection, ImportKind kind) throws SQLException {
+        String sql = "COPY " + stagingTable(kind) + " FROM STDIN (FORMAT csv)";
+        return new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+    }
+
+    private static Writer writer(PGCopyOutputStream copyStream) {
+        return new BufferedWriter(new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+    }
+
+    private long merge(Connection connection, ImportKind kind) throws SQLException {
+        switch (kind) {
+            case USERS:
+                try (PreparedStatement statement = connection.prepareStatement("""
+                        INSERT INTO users (login, name, age, gender, hair_color)
+                        SELECT login, name, age, gender, hair_color FROM import_users
+                        ON CONFLICT (login) DO NOTHING
+                        """)) {
+                    return statement.executeUpdate();
+                }
+
+            case FRIENDSHIPS:
+                try (PreparedStatement statement = connection.prepareStatement("""
+                        WITH inserted AS (
+                            INSERT INTO friends (user_id, friend_id)
+                            SELECT u.id, f.id
+                            FROM import_friendships s
+                            JOIN users u ON u.login = s.login
+                            JOIN users f ON f.login = s.friend_login
+                            ON CONFLICT DO NOTHING
+                            RETURNING user_id
+                        ), versioned AS (
+                            UPDATE users SET version = version + 1
+                            WHERE id IN (SELECT user_id FROM inserted)
+                        )
+                        SELECT count(*) FROM inserted
+                        """);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                }
+
+            default:
+                try (PreparedStatement statement = connection.prepareStatement("""
+                        WITH inserted AS (
+                            INSERT INTO bank_accounts (user_id, balance)
+                            SELECT u.id, s.balance
+                            FROM import_accounts s
+                            JOIN users u ON u.login = s.login
+                            RETURNING id, balance
+                        ), opened AS (
+                            INSERT INTO balance_snapshots (account_id, last_entry_seq, balance, as_of)
+                            SELECT id, 0, balance, now() FROM inserted WHERE ?
+                        )
+                        SELECT count(*) FROM inserted
+                        """)) {
+                    statement.setBoolean(1, ledger.isEnabled());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        return resultSet.getLong(1);
+                    }
+                }
+        }
+    }
+
+    private Function<String, String[]> csvParser(ImportKind kind, String header) {
+        if (header == null) {
+            throw new InvalidImportException("CSV input must start with a header line");
+        }
+
+        List<String> columns = splitCsv(header);
+        int[] indexes = new int[kind.getFields().size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = columns.indexOf(kind.getFields().get(i));
+            if (indexes[i] < 0) {
+                throw new InvalidImportException("CSV header must contain the columns " + kind.getFields());
+            }
+        }
+
+        return line -> {
+            List<String> values = splitCsv(line);
+            String[] fields = new String[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] >= values.size()) {
+                    throw new InvalidImportException("Expected " + columns.size() + " values");
+                }
+                fields[i] = values.get(indexes[i]);
+            }
+            return fields;
+        };
+    }
+
+    private Function<String, String[]> ndjsonParser(ImportKind kind) {
+        return line -> {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new InvalidImportException("Malformed JSON");
+            }
+
+            String[] fields = new String[kind.getFields().size()];
+            for (int i = 0; i < fields.length; i++) {
+                JsonNode value = node.get(kind.getFields().get(i));
+                fields[i] = value == null || value.isNull() ? null : value.asText();
+            }
+            return fields;
+        };
+    }
+
+    private static void writeStagingRow(ImportKind kind, String[] fields, Writer copy) throws IOException {
+        switch (kind) {
+            case USERS:
+                String login = required(fields[0], "login");
+                String name = required(fields[1], "name");
+                int age = parseInt(fields[2], "age");
+                int gender = genderCode(required(fields[3], "gender"));
+                HairColor hairColor = parseHairColor(fields[4]);
+
+                copy.append(quote(login)).append(',')
+                        .append(quote(name)).append(',')
+                        .append(Integer.toString(age)).append(',')
+                        .append(Integer.toString(gender)).append(',')
+                        .append(hairColor.name()).append('\n');
+                break;
+
+            case FRIENDSHIPS:
+                String userLogin = required(fields[0], "login");
+                String friendLogin = required(fields[1], "friendLogin");
+                if (userLogin.equals(friendLogin)) {
+                    throw new InvalidImportException("User can't be made it's friend");
+                }
+
+                copy.append(quote(userLogin)).append(',').append(quote(friendLogin)).append('\n');
+                break;
+
+            default:
+                String owner = required(fields[0], "login");
+                double balance = parseBalance(fields[1]);
+
+                copy.append(quote(owner)).append(',').append(Double.toString(balance)).append('\n');
+        }
+    }
+
+    private static String createStagingSql(ImportKind kind) {
+        String columns = switch (kind) {
+            case USERS -> "login TEXT, name TEXT, age INT, gender INT, hair_color TEXT";
+            case FRIENDSHIPS -> "login TEXT, friend_login TEXT";
+            case ACCOUNTS -> "login TEXT, balance DOUBLE PRECISION";
+        };
+
+        return "CREATE TEMPORARY TABLE " + stagingTable(kind) + " (" + columns + ") ON COMMIT DELETE ROWS";
+    }
+
+    private static String stagingTable(ImportKind kind) {
+        return "import_" + kind.name().toLowerCase();
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new InvalidImportException("Missing " + field);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            int parsed = Integer.parseInt(required(value, field).trim());
+            if (parsed < 0) {
+                throw new InvalidImportException(field + " must not be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new InvalidImportException("Invalid " + field + ": '" + value + "'");
+        }
+    }
+
+    private static double parseBalance(String value) {
+        try {
+            double balance = Double.parseDouble(required(value, "balance").trim());
+            if (!Double.isFinite(balance) || balance < 0) {
+                throw new InvalidImportException("balance must be a non-negative number");
+            }
+            return balance;
+        } catch (NumberFormatException e) {
+            throw new InvalidImportException("Invalid balance: '" + value + "'");
+        }
+    }
+
+    private static HairColor parseHairColor(String value) {
+        try {
+            return HairColor.valueOf(required(value, "hairColor"));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImportException("Invalid hairColor: '" + value + "'");
+        }
+    }
+
+    /**
+     * Uses the same codes as user creation through the API.
+     */
+    private static int genderCode(String gender) {
+        return switch (gender) {
+            case "Male" -> 1;
+            case "Female" -> 2;
+            default -> 0;
+        };
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new InvalidImportException("Unterminated quoted value");
+        }
+        values.add(value.toString());
+
+        return values;
+    }
+}
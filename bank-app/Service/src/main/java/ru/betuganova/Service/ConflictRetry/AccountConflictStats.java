@@ -0,0 +1,15 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the accumulated concurrency conflicts of a single bank account.
+ */
+@Getter
+@AllArgsConstructor
+public class AccountConflictStats {
+    private long accountId;
+    private long conflicts;
+    private long retries;
+}
@@ -0,0 +1,31 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Retries the {@link RetryOnConflict} service methods that fail with a concurrency failure,
+ * with jittered exponential backoff and a bounded number of attempts.
+ */
+public interface ConflictRetry {
+    /**
+     * Runs an operation with the retries of the {@link RetryOnConflict} methods, for callers that have to see only
+     * its final outcome. Every attempt must start its own transaction; inside an existing transaction the operation
+     * is run once.
+     *
+     * @param method    The name the conflicts and retries of the operation are counted under.
+     * @param operation Runs one attempt of the operation.
+     * @return The result of the first attempt that didn't fail with a concurrency failure.
+     * @throws IllegalStateException If the thread is interrupted while waiting to retry.
+     */
+    <T> T execute(String method, Supplier<T> operation);
+
+    /**
+     * Returns conflict and retry statistics of the bank accounts with the most conflicts, up to a fixed number of
+     * accounts. The conflict counts are upper bounds. The same numbers are published as the
+     * {@code bank.accounts.account.conflicts} and {@code bank.accounts.account.retries} gauges, tagged by account.
+     *
+     * @return a list of {@link AccountConflictStats} ordered by the number of conflicts, most contended first
+     */
+    List<AccountConflictStats> getAccountStats();
+}
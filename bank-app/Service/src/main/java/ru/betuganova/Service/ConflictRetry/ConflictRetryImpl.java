@@ -0,0 +1,247 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.betuganova.Entity.BankAccountEntity;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation of the {@link ConflictRetry} interface as an aspect around the {@link RetryOnConflict} methods.
+ * It runs outside their transactions, so every attempt starts a new one, and inside the service metrics,
+ * so an operation is timed once with its final outcome. Calls made inside an existing transaction aren't retried.
+ * A method is attempted up to {@code bank.accounts.retry.max-attempts} times; before attempt n it sleeps for a random
+ * time up to {@code bank.accounts.retry.initial-backoff} * 2^(n-2), capped at {@code bank.accounts.retry.max-backoff}.
+ * Conflicts, retries and given-up operations are counted in the {@code bank.accounts.conflicts},
+ * {@code bank.accounts.retries} and {@code bank.accounts.retries.exhausted} counters, tagged by method.
+ * A conflict is attributed to the account named by an optimistic locking failure, otherwise to the
+ * {@link ConflictingAccount} parameters of the method, also when the method failed inside the transaction of a
+ * retrying {@link #execute} caller. The {@code bank.accounts.retry.hot-accounts} accounts with the most conflicts
+ * are tracked in {@link HotAccounts} and published as the {@code bank.accounts.account.conflicts} and
+ * {@code bank.accounts.account.retries} gauges, tagged by account, so there are never more series than that.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConflictRetryImpl implements ConflictRetry {
+    private static final long[] NO_ACCOUNTS = new long[0];
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final HotAccounts hotAccounts;
+    private final MultiGauge hotAccountConflicts;
+    private final MultiGauge hotAccountRetries;
+    private final ThreadLocal<long[]> failedAccounts = new ThreadLocal<>();
+
+    /**
+     * Constructs a ConflictRetryImpl.
+     *
+     * @param maxAttempts     The maximum number of attempts of an operation, including the first one.
+     * @param initialBackoff  The upper bound of the sleep before the first retry.
+     * @param maxBackoff      The upper bound of the sleep before any retry.
+     * @param hotAccounts     The maximum number of accounts whose conflicts are tallied.
+     */
+    @Autowired
+    public ConflictRetryImpl(MeterRegistry meterRegistry,
+                             @Value("${bank.accounts.retry.max-attempts:5}") int maxAttempts,
+                             @Value("${bank.accounts.retry.initial-backoff:5ms}") Duration initialBackoff,
+                             @Value("${bank.accounts.retry.max-backoff:200ms}") Duration maxBackoff,
+                             @Value("${bank.accounts.retry.hot-accounts:100}") int hotAccounts) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.hotAccounts = new HotAccounts(Math.max(1, hotAccounts));
+        this.hotAccountConflicts = MultiGauge.builder("bank.accounts.account.conflicts")
+                .description("Concurrency failures of money-moving operations on the accounts with the most of them")
+                .register(meterRegistry);
+        this.hotAccountRetries = MultiGauge.builder("bank.accounts.account.retries")
+                .description("Retries after a conflict on the accounts with the most conflicts")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(ru.betuganova.Service.ConflictRetry.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        return withRetries(joinPoint.getSignature().getName(), accountIdsOf(joinPoint), joinPoint::proceed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <T> T execute(String method, Supplier<T> operation) {
+        try {
+            return withRetries(method, NO_ACCOUNTS, operation::get);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry " + method, e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T withRetries(String method, long[] accountIds, Attempt<T> operation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return operation.run();
+            } catch (ConcurrencyFailureException e) {
+                // The caller retrying the surrounding transaction doesn't know the accounts.
+                failedAccounts.set(accountIds);
+                throw e;
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            failedAccounts.remove();
+            try {
+                return operation.run();
+            } catch (ConcurrencyFailureException e) {
+                long[] conflictingAccountIds = accountIdsOf(e, accountIds);
+                counter("bank.accounts.conflicts", "Concurrency failures of money-moving operations", method)
+                        .increment();
+                tallyConflicts(conflictingAccountIds);
+
+                if (attempt >= maxAttempts) {
+                    counter("bank.accounts.retries.exhausted", "Operations given up after the last attempt", method)
+                            .increment();
+                    throw e;
+                }
+
+                counter("bank.accounts.retries", "Retries of money-moving operations after a conflict", method)
+                        .increment();
+                tallyRetries(conflictingAccountIds);
+                Thread.sleep(backoff(attempt));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<AccountConflictStats> getAccountStats() {
+        synchronized (hotAccounts) {
+            return hotAccounts.tallies()
+                    .stream()
+                    .map(tally -> new AccountConflictStats(
+                            tally.getAccountId(), tally.getConflicts(), tally.getRetries()))
+                    .sorted(Comparator.comparingLong(AccountConflictStats::getConflicts).reversed())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Full jitter: a uniformly random sleep up to the exponentially growing bound, so that operations that
+     * conflicted with each other don't collide again on the retry.
+     */
+    private long backoff(int attempt) {
+        long bound = Math.min(initialBackoff.toMillis() << Math.min(attempt - 1, 30), maxBackoff.toMillis());
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private void tallyConflicts(long[] accountIds) {
+        synchronized (hotAccounts) {
+            boolean changed = false;
+            for (long accountId : accountIds) {
+                changed |= hotAccounts.conflict(accountId);
+            }
+
+            if (changed) {
+                List<HotAccounts.Tally> tallies = List.copyOf(hotAccounts.tallies());
+                hotAccountConflicts.register(rows(tallies, HotAccounts.Tally::getConflicts), true);
+                hotAccountRetries.register(rows(tallies, HotAccounts.Tally::getRetries), true);
+            }
+        }
+    }
+
+    private void tallyRetries(long[] accountIds) {
+        synchronized (hotAccounts) {
+            for (long accountId : accountIds) {
+                hotAccounts.retry(accountId);
+            }
+        }
+    }
+
+    private static List<MultiGauge.Row<?>> rows(List<HotAccounts.Tally> tallies,
+                                                ToDoubleFunction<HotAccounts.Tally> value) {
+        return tallies.stream()
+                .<MultiGauge.Row<?>>map(tally -> MultiGauge.Row.of(
+                        Tags.of("account", Long.toString(tally.getAccountId())), tally, value))
+                .collect(Collectors.toList());
+    }
+
+    private Counter counter(String name, String description, String method) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the {@link ConflictingAccount} parameters of the called method.
+     */
+    private static long[] accountIdsOf(ProceedingJoinPoint joinPoint) {
+        Method method = AopUtils.getMostSpecificMethod(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint.getTarget().getClass());
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Object[] args = joinPoint.getArgs();
+
+        return IntStream.range(0, args.length)
+                .filter(i -> args[i] instanceof Long
+                        && Arrays.stream(parameterAnnotations[i]).anyMatch(ConflictingAccount.class::isInstance))
+                .mapToLong(i -> (Long) args[i])
+                .toArray();
+    }
+
+    /**
+     * Picks the accounts a conflict is attributed to: the account named by an optimistic locking failure,
+     * otherwise the accounts of the call or, if it has none, of the method that failed inside its transaction.
+     */
+    private long[] accountIdsOf(ConcurrencyFailureException e, long[] accountIds) {
+        long[] nestedAccountIds = failedAccounts.get();
+        failedAccounts.remove();
+
+        if (e instanceof ObjectOptimisticLockingFailureException conflict
+                && BankAccountEntity.class.getName().equals(conflict.getPersistentClassName())
+                && conflict.getIdentifier() instanceof Long accountId) {
+            return new long[]{accountId};
+        }
+        if (accountIds.length > 0 || nestedAccountIds == null) {
+            return accountIds;
+        }
+
+        return nestedAccountIds;
+    }
+
+    @FunctionalInterface
+    private interface Attempt<T> {
+        T run() throws Throwable;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code long} parameter of a {@link RetryOnConflict} method that holds the ID of a bank account the method
+ * changes. Concurrency failures that don't name their account, such as deadlocks and serialization failures,
+ * are attributed to the accounts of these parameters.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConflictingAccount {
+}
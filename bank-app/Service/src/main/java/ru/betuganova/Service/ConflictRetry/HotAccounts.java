@@ -0,0 +1,87 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conflict and retry counts of at most a fixed number of bank accounts, kept with the Space-Saving algorithm.
+ * An account that conflicts while all places are taken replaces the tracked account with the fewest conflicts and
+ * inherits its conflict count, so conflict counts are upper bounds, and every account with more conflicts than
+ * the total divided by the capacity is tracked. Retries are counted from when an account became tracked.
+ * Not thread-safe; the counts of a {@link Tally} may be read while they change.
+ */
+final class HotAccounts {
+    private final int capacity;
+    private final Map<Long, Tally> tallies;
+
+    /**
+     * @param capacity The maximum number of tracked accounts, at least one.
+     */
+    HotAccounts(int capacity) {
+        this.capacity = capacity;
+        this.tallies = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts a conflict of an account.
+     *
+     * @return {@code true} if the account wasn't tracked before, so the tracked accounts changed.
+     */
+    boolean conflict(long accountId) {
+        Tally tally = tallies.get(accountId);
+        if (tally != null) {
+            tally.conflicts++;
+            return false;
+        }
+
+        long inherited = 0;
+        if (tallies.size() >= capacity) {
+            Tally coldest = Collections.min(tallies.values(), Comparator.comparingLong(Tally::getConflicts));
+            tallies.remove(coldest.accountId);
+            inherited = coldest.conflicts;
+        }
+
+        tallies.put(accountId, new Tally(accountId, inherited + 1));
+        return true;
+    }
+
+    /**
+     * Counts a retry of an account, if it's tracked.
+     */
+    void retry(long accountId) {
+        Tally tally = tallies.get(accountId);
+        if (tally != null) {
+            tally.retries++;
+        }
+    }
+
+    Collection<Tally> tallies() {
+        return Collections.unmodifiableCollection(tallies.values());
+    }
+
+    static final class Tally {
+        private final long accountId;
+        private volatile long conflicts;
+        private volatile long retries;
+
+        private Tally(long accountId, long conflicts) {
+            this.accountId = accountId;
+            this.conflicts = conflicts;
+        }
+
+        long getAccountId() {
+            return accountId;
+        }
+
+        long getConflicts() {
+            return conflicts;
+        }
+
+        long getRetries() {
+            return retries;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a transactional service method that is run again, in a new transaction, when it fails with
+ * a concurrency failure such as an optimistic locking conflict or a deadlock.
+ * See {@link ConflictRetry}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
@@ -1,23 +1,38 @@
 package ru.betuganova.Service.CurrentUserManager;
 
 
+import ru.betuganova.Exception.UnauthorizedException;
 import ru.betuganova.Model.User;
 
 /**
- * Manages the current authenticated user in the system.
+ * Manages the authenticated user of the request handled by the current thread.
  */
 public interface CurrentUserManager {
     /**
-     * Retrieves the currently authenticated user.
+     * Retrieves the user of the session bound to the current thread.
      *
      * @return The current user.
+     * @throws UnauthorizedException If no session is bound to the current thread.
      */
-    User getCurrentUser();
+    User getCurrentUser() throws UnauthorizedException;
 
     /**
-     * Sets the currently authenticated user.
+     * Retrieves the token of the session bound to the current thread.
      *
-     * @param user The user to set as the current user.
+     * @return The session token, or {@code null} if no session is bound.
      */
-    void setCurrentUser(User user);
+    String getCurrentSessionToken();
+
+    /**
+     * Resolves a session and binds it to the current thread until {@link #unbind()} is called.
+     *
+     * @param token The session token.
+     * @throws UnauthorizedException If the session doesn't exist or has expired.
+     */
+    void bind(String token) throws UnauthorizedException;
+
+    /**
+     * Unbinds the session from the current thread.
+     */
+    void unbind();
 }
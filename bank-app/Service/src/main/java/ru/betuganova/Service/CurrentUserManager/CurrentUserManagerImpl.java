@@ -1,28 +1,67 @@
 package ru.betuganova.Service.CurrentUserManager;
 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.betuganova.Exception.UnauthorizedException;
 import ru.betuganova.Model.User;
+import ru.betuganova.Service.SessionStore.SessionStore;
 
 /**
  * Implementation of the {@link CurrentUserManager} interface.
- * This class manages the currently authenticated user.
+ * Sessions are resolved from the {@link SessionStore} and held in a thread local,
+ * so concurrent requests of different clients never see each other's user.
  */
 @Component
 public class CurrentUserManagerImpl implements CurrentUserManager {
-    private User currentUser;
+    private final SessionStore sessionStore;
+    private final ThreadLocal<String> currentToken = new ThreadLocal<>();
+    private final ThreadLocal<User> currentUser = new ThreadLocal<>();
+
+    @Autowired
+    public CurrentUserManagerImpl(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public User getCurrentUser() throws UnauthorizedException {
+        User user = currentUser.get();
+
+        if (user == null) {
+            throw new UnauthorizedException("User isn't logged in");
+        }
+
+        return user;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getCurrentSessionToken() {
+        return currentToken.get();
+    }
 
     /**
      * {@inheritDoc}
      */
-    public User getCurrentUser() {
-        return currentUser;
+    public void bind(String token) throws UnauthorizedException {
+        User user = sessionStore.find(token);
+
+        if (user == null) {
+            throw new UnauthorizedException("Session doesn't exist or has expired");
+        }
+
+        currentToken.set(token);
+        currentUser.set(user);
     }
 
     /**
      * {@inheritDoc}
      */
-    public void setCurrentUser(User user) {
-        currentUser = user;
+    public void unbind() {
+        currentToken.remove();
+        currentUser.remove();
     }
 }
@@ -0,0 +1,14 @@
+package ru.betuganova.Service.DailyTotalsFolder;
+
+/**
+ * Folds the daily totals that inserted transactions append as deltas into the account_daily_totals table,
+ * so inserting transactions never waits for the totals of other transactions.
+ */
+public interface DailyTotalsFolder {
+    /**
+     * Moves the committed deltas into the totals.
+     *
+     * @return The number of updated or inserted totals.
+     */
+    int fold();
+}
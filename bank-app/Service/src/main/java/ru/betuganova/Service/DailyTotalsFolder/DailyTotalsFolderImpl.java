@@ -0,0 +1,44 @@
+package ru.betuganova.Service.DailyTotalsFolder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Repository.AccountDailyTotalRepository;
+
+/**
+ * Implementation of the {@link DailyTotalsFolder} interface.
+ * Folds every {@code bank.daily-totals.fold-interval}; every instance may fold, since a delta is only moved once.
+ * Readers add the deltas that weren't folded yet, so the interval only bounds the size of the delta table.
+ */
+@Component
+public class DailyTotalsFolderImpl implements DailyTotalsFolder {
+    private final AccountDailyTotalRepository accountDailyTotalRepository;
+    private final TransactionTemplate transaction;
+    private final Counter folded;
+
+    @Autowired
+    public DailyTotalsFolderImpl(AccountDailyTotalRepository accountDailyTotalRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.accountDailyTotalRepository = accountDailyTotalRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.folded = Counter.builder("bank.daily-totals.folded")
+                .description("Daily totals updated or inserted from the deltas of inserted transactions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Scheduled(fixedDelayString = "${bank.daily-totals.fold-interval:1s}")
+    public int fold() {
+        int totals = transaction.execute(status -> accountDailyTotalRepository.foldDeltas());
+        folded.increment(totals);
+
+        return totals;
+    }
+}
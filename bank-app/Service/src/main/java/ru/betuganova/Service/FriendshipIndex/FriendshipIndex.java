@@ -0,0 +1,39 @@
+package ru.betuganova.Service.FriendshipIndex;
+
+/**
+ * In-memory index of the friends table used for commission decisions.
+ * Friendship is directed, as in the friends table: a user's friend list may contain a user
+ * whose own list doesn't contain them.
+ */
+public interface FriendshipIndex {
+    /**
+     * Checks whether a user has another user in their friend list.
+     *
+     * @param userId   The ID of the user whose friend list is checked.
+     * @param friendId The ID of the possible friend.
+     * @return {@code true} if the friend list of the user contains the other user.
+     */
+    boolean areFriends(long userId, long friendId);
+
+    /**
+     * Adds a user to the friend list of another user.
+     *
+     * @param userId   The ID of the user whose friend list changes.
+     * @param friendId The ID of the added friend.
+     */
+    void addFriendship(long userId, long friendId);
+
+    /**
+     * Removes a user from the friend list of another user.
+     *
+     * @param userId   The ID of the user whose friend list changes.
+     * @param friendId The ID of the removed friend.
+     */
+    void removeFriendship(long userId, long friendId);
+
+    /**
+     * Rebuilds the index from the friends table. Changes made while the rebuild runs may be lost,
+     * so it is meant for startup and for after bulk loads.
+     */
+    void rebuild();
+}
@@ -0,0 +1,295 @@
+package ru.betuganova.Service.FriendshipIndex;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Projection.FriendshipView;
+import ru.betuganova.Repository.UserRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the {@link FriendshipIndex} interface.
+ * User IDs are spread over segments of open-addressing {@code long} keyed tables, each guarded by a
+ * {@link StampedLock}; lookups normally take no lock at all. The friend list of a user is an immutable
+ * {@link LongSet}, replaced on every change. The index is built from the friends table once all beans are
+ * initialized, before the application starts serving requests.
+ * The {@code bank.friendship.index.*} gauges expose the number of users and edges and the estimated heap footprint.
+ */
+@Component
+public class FriendshipIndexImpl implements FriendshipIndex, SmartInitializingSingleton {
+    private static final int SEGMENT_BITS = 6;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transaction;
+    private final AtomicLong edgeCount = new AtomicLong();
+    private volatile Segment[] segments = newSegments();
+
+    /**
+     * Constructs a FriendshipIndexImpl and registers its gauges.
+     *
+     * @param userRepository     The repository the index is built from.
+     * @param transactionManager The transaction manager used to stream the friends table.
+     * @param meterRegistry      The registry the index metrics are published to.
+     */
+    @Autowired
+    public FriendshipIndexImpl(UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        // Not read-only, so a rebuild reads the primary and sees friendships committed just before it.
+        this.transaction = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("bank.friendship.index.users", this, FriendshipIndexImpl::userCount)
+                .description("Users with an entry in the friendship index")
+                .register(meterRegistry);
+        Gauge.builder("bank.friendship.index.edges", edgeCount, AtomicLong::get)
+                .description("Friendships held in the friendship index")
+                .register(meterRegistry);
+        Gauge.builder("bank.friendship.index.footprint", this, FriendshipIndexImpl::footprintBytes)
+                .description("Estimated heap used by the friendship index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean areFriends(long userId, long friendId) {
+        LongSet friends = segmentOf(segments, userId).get(userId);
+        return friends != null && friends.contains(friendId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addFriendship(long userId, long friendId) {
+        edgeCount.addAndGet(segmentOf(segments, userId).update(userId, friends -> friends.with(friendId)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeFriendship(long userId, long friendId) {
+        edgeCount.addAndGet(segmentOf(segments, userId).update(userId, friends -> friends.without(friendId)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void rebuild() {
+        Segment[] rebuilt = newSegments();
+        long edges = transaction.execute(status -> {
+            long added = 0;
+            long userId = 0;
+            LongSet.Builder friends = new LongSet.Builder();
+
+            // Friendships arrive ordered by user, so the set of every user is built once from one run of rows.
+            try (Stream<FriendshipView> friendships = userRepository.streamAllFriendships()) {
+                for (FriendshipView friendship : (Iterable<FriendshipView>) friendships::iterator) {
+                    if (friendship.getUserId() != userId) {
+                        added += put(rebuilt, userId, friends);
+                        userId = friendship.getUserId();
+                        friends = new LongSet.Builder();
+                    }
+                    friends.add(friendship.getFriendId());
+                }
+            }
+            return added + put(rebuilt, userId, friends);
+        });
+
+        segments = rebuilt;
+        edgeCount.set(edges);
+    }
+
+    private static int put(Segment[] segments, long userId, LongSet.Builder friends) {
+        if (friends.size() == 0) {
+            return 0;
+        }
+
+        LongSet built = friends.build();
+        return segmentOf(segments, userId).update(userId, ignored -> built);
+    }
+
+    private long userCount() {
+        long users = 0;
+        for (Segment segment : segments) {
+            users += segment.size();
+        }
+        return users;
+    }
+
+    private long footprintBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.footprintBytes();
+        }
+        return bytes;
+    }
+
+    private static Segment[] newSegments() {
+        Segment[] segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        return segments;
+    }
+
+    private static Segment segmentOf(Segment[] segments, long userId) {
+        return segments[(int) ((userId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Open-addressing table from user ID to friend set. Writers take the write lock; readers use an
+     * optimistic read and fall back to the read lock when a write interleaved.
+     */
+    static final class Segment {
+        private static final long EMPTY_KEY = 0;
+
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[16];
+        private LongSet[] values = new LongSet[16];
+        private int size;
+
+        LongSet get(long userId) {
+            long stamp = lock.tryOptimisticRead();
+            LongSet friends = find(keys, values, userId);
+
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    friends = find(keys, values, userId);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            return friends;
+        }
+
+        /**
+         * Replaces the friend set of a user.
+         *
+         * @return The change of the number of friendships.
+         */
+        int update(long userId, UnaryOperator<LongSet> change) {
+            long stamp = lock.writeLock();
+            try {
+                LongSet current = find(keys, values, userId);
+                LongSet before = current == null ? LongSet.EMPTY : current;
+                LongSet after = change.apply(before);
+
+                if (after != before) {
+                    put(userId, after);
+                }
+
+                return after.size() - before.size();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long footprintBytes() {
+            long stamp = lock.readLock();
+            try {
+                long bytes = 2 * 16 + (long) keys.length * (Long.BYTES + 4);
+                for (LongSet friends : values) {
+                    if (friends != null && friends != LongSet.EMPTY) {
+                        bytes += friends.footprintBytes();
+                    }
+                }
+                return bytes;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void put(long userId, LongSet friends) {
+            int mask = keys.length - 1;
+            int slot = LongSet.slotOf(userId, mask);
+
+            while (keys[slot] != EMPTY_KEY) {
+                if (keys[slot] == userId) {
+                    values[slot] = friends;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            values[slot] = friends;
+            keys[slot] = userId;
+            size++;
+
+            if (size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            LongSet[] oldValues = values;
+            long[] newKeys = new long[oldKeys.length * 2];
+            LongSet[] newValues = new LongSet[oldValues.length * 2];
+            int mask = newKeys.length - 1;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY_KEY) {
+                    int slot = LongSet.slotOf(oldKeys[i], mask);
+                    while (newKeys[slot] != EMPTY_KEY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+
+            values = newValues;
+            keys = newKeys;
+        }
+
+        /**
+         * Looks a user up in a possibly torn snapshot of the table; the caller validates the result.
+         */
+        private static LongSet find(long[] keys, LongSet[] values, long userId) {
+            if (keys.length != values.length) {
+                return null;
+            }
+
+            int mask = keys.length - 1;
+            int slot = LongSet.slotOf(userId, mask);
+            for (int probes = 0; probes < keys.length; probes++) {
+                long key = keys[slot];
+                if (key == userId) {
+                    return values[slot];
+                }
+                if (key == EMPTY_KEY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.betuganova.Service.FriendshipIndex;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable open-addressing hash set of positive {@code long} values.
+ * Updates return a new set, so readers never need a lock.
+ */
+final class LongSet {
+    static final LongSet EMPTY = new LongSet(new long[2], 0);
+
+    private static final long EMPTY_SLOT = 0;
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long OBJECT_BYTES = 24;
+
+    private final long[] table;
+    private final int size;
+
+    private LongSet(long[] table, int size) {
+        this.table = table;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        int mask = table.length - 1;
+        for (int slot = slotOf(value, mask); ; slot = (slot + 1) & mask) {
+            long current = table[slot];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY_SLOT) {
+                return false;
+            }
+        }
+    }
+
+    LongSet with(long value) {
+        if (contains(value)) {
+            return this;
+        }
+
+        long[] copy = new long[capacityFor(size + 1)];
+        forEach(element -> insert(copy, element));
+        insert(copy, value);
+
+        return new LongSet(copy, size + 1);
+    }
+
+    LongSet without(long value) {
+        if (!contains(value)) {
+            return this;
+        }
+        if (size == 1) {
+            return EMPTY;
+        }
+
+        long[] copy = new long[capacityFor(size - 1)];
+        forEach(element -> {
+            if (element != value) {
+                insert(copy, element);
+            }
+        });
+
+        return new LongSet(copy, size - 1);
+    }
+
+    void forEach(LongConsumer action) {
+        for (long element : table) {
+            if (element != EMPTY_SLOT) {
+                action.accept(element);
+            }
+        }
+    }
+
+    long footprintBytes() {
+        return OBJECT_BYTES + ARRAY_HEADER_BYTES + (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Collects values into a mutable table and turns it into a set once, so building a set of n values copies
+     * O(n) values instead of the O(n^2) of adding them one by one with {@link #with}.
+     */
+    static final class Builder {
+        private long[] table = new long[2];
+        private int size;
+
+        Builder add(long value) {
+            if (size + 1 > table.length / 2) {
+                long[] grown = new long[capacityFor(size + 1)];
+                for (long element : table) {
+                    if (element != EMPTY_SLOT) {
+                        insert(grown, element);
+                    }
+                }
+                table = grown;
+            }
+            if (insertIfAbsent(table, value)) {
+                size++;
+            }
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the set of the added values. The builder must not be used afterwards.
+         */
+        LongSet build() {
+            return size == 0 ? EMPTY : new LongSet(table, size);
+        }
+    }
+
+    private static boolean insertIfAbsent(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = slotOf(value, mask);
+        while (table[slot] != EMPTY_SLOT) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        return true;
+    }
+
+    private static void insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = slotOf(value, mask);
+        while (table[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int slotOf(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.betuganova.Service.IdempotencyStore;
+
+import ru.betuganova.Exception.IdempotencyKeyReusedException;
+import ru.betuganova.Model.IdempotentResult;
+
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates requests of the current user by their idempotency keys.
+ */
+public interface IdempotencyStore {
+    /**
+     * Executes an action once per idempotency key of the current user.
+     * The action runs in a transaction together with storing its result, so services it calls join that transaction.
+     * Concurrent calls with the same key wait for the first one and share its outcome; later calls return the stored
+     * result without running the action. If the action fails nothing is stored and the key can be retried.
+     *
+     * @param key         The idempotency key sent by the client.
+     * @param fingerprint Identifies the request, so a key can't be reused for a different request.
+     * @param action      Performs the request and returns its result.
+     * @return The result of the action, marked as replayed if it was stored before.
+     * @throws IdempotencyKeyReusedException If the key was used for a request with another fingerprint.
+     */
+    IdempotentResult execute(String key, String fingerprint, Supplier<IdempotentResult> action)
+            throws IdempotencyKeyReusedException;
+}
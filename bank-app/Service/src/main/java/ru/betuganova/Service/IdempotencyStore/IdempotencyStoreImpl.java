@@ -0,0 +1,163 @@
+package ru.betuganova.Service.IdempotencyStore;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Entity.IdempotencyKeyEntity;
+import ru.betuganova.Exception.IdempotencyKeyReusedException;
+import ru.betuganova.Model.IdempotentResult;
+import ru.betuganova.Repository.IdempotencyKeyRepository;
+import ru.betuganova.Service.ConflictRetry.ConflictRetry;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.UserIdCache.UserIdCache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the {@link IdempotencyStore} interface.
+ * Results are kept in a bounded Caffeine cache of futures, which also collapses concurrent requests with the same
+ * key within this instance, and in the idempotency_keys table, which covers evicted keys, restarts and other
+ * instances. Both expire after {@code bank.idempotency.ttl}.
+ */
+@Component
+public class IdempotencyStoreImpl implements IdempotencyStore {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CurrentUserManager currentUserManager;
+    private final UserIdCache userIdCache;
+    private final ConflictRetry conflictRetry;
+    private final TransactionTemplate transaction;
+    private final Cache<String, CompletableFuture<StoredResult>> results;
+    private final Duration ttl;
+
+    /**
+     * Constructs an IdempotencyStoreImpl and registers the metrics of its cache.
+     *
+     * @param ttl     The time for which results are kept.
+     * @param maxSize The maximum number of results kept in memory.
+     */
+    @Autowired
+    public IdempotencyStoreImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                CurrentUserManager currentUserManager,
+                                UserIdCache userIdCache,
+                                ConflictRetry conflictRetry,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${bank.idempotency.ttl:24h}") Duration ttl,
+                                @Value("${bank.idempotency.max-size:100000}") long maxSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.currentUserManager = currentUserManager;
+        this.userIdCache = userIdCache;
+        this.conflictRetry = conflictRetry;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "idempotencyKeys");
+    }
+
+    /**
+     * {@inheritDoc}
+     * The operation runs inside the transaction of the store, so a conflict is retried here, claim included,
+     * before the outcome is shared with the concurrent calls waiting for it.
+     */
+    public IdempotentResult execute(String key, String fingerprint, Supplier<IdempotentResult> action)
+            throws IdempotencyKeyReusedException {
+
+        String login = currentUserManager.getCurrentUser().getLogin();
+        Long userId = userIdCache.getUserId(login);
+        if (userId == null) {
+            throw new NoSuchElementException("User with login: '" + login + "' wasn't found");
+        }
+
+        String cacheKey = userId + ":" + key;
+        CompletableFuture<StoredResult> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResult> previous = results.asMap().putIfAbsent(cacheKey, execution);
+
+        if (previous != null) {
+            return await(previous).replayFor(fingerprint);
+        }
+
+        try {
+            StoredResult result = conflictRetry.execute("execute",
+                    () -> transaction.execute(status -> executeOnce(userId, key, fingerprint, action)));
+            execution.complete(result);
+
+            return result.resultFor(fingerprint);
+        } catch (RuntimeException e) {
+            results.asMap().remove(cacheKey, execution);
+            execution.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the stored results that have expired.
+     */
+    @Scheduled(fixedDelayString = "${bank.idempotency.cleanup-interval:PT1H}")
+    public void deleteExpired() {
+        transaction.executeWithoutResult(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(ttl)));
+    }
+
+    private StoredResult executeOnce(long userId, String key, String fingerprint, Supplier<IdempotentResult> action) {
+        if (idempotencyKeyRepository.claim(userId, key, fingerprint) == 0) {
+            IdempotencyKeyEntity stored = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key);
+            return new StoredResult(stored.getFingerprint(),
+                    new IdempotentResult(stored.getStatus(), stored.getBody(), true));
+        }
+
+        IdempotentResult result = action.get();
+        idempotencyKeyRepository.complete(userId, key, result.getStatus(), result.getBody());
+
+        return new StoredResult(fingerprint, result);
+    }
+
+    private static StoredResult await(CompletableFuture<StoredResult> execution) {
+        try {
+            return execution.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class StoredResult {
+        private final String fingerprint;
+        private final IdempotentResult result;
+
+        private StoredResult(String fingerprint, IdempotentResult result) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+
+        private IdempotentResult resultFor(String requestFingerprint) {
+            if (!fingerprint.equals(requestFingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency key was already used for another request");
+            }
+
+            return result;
+        }
+
+        private IdempotentResult replayFor(String requestFingerprint) {
+            return resultFor(requestFingerprint).asReplay();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.betuganova.Service.Ledger;
+
+import ru.betuganova.Exception.LedgerDisabledException;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Optional ledger mode, in which the append-only transaction log is the source of truth for balances.
+ * The balance of an account is its latest snapshot plus the entries appended after it; a new snapshot is
+ * taken every {@code bank.ledger.snapshot-interval} entries. When the mode is disabled the stored balance
+ * of the account is authoritative and the transaction log is only a history.
+ * Methods that append entries must be called within a transaction.
+ */
+public interface Ledger {
+    /**
+     * Checks whether the ledger mode is enabled.
+     *
+     * @return {@code true} if balances are derived from the transaction log.
+     */
+    boolean isEnabled();
+
+    /**
+     * Converts the stored data to the ledger mode by starting the ledger of every account that has none
+     * from its stored balance. Writes to the accounts are blocked while it runs.
+     *
+     * @return The number of accounts whose ledger was started.
+     */
+    int startLedgers();
+
+    /**
+     * Converts the stored data out of the ledger mode by writing the ledger balance of every account back to its
+     * stored balance and dropping the snapshots. Writes to the accounts are blocked while it runs.
+     *
+     * @return The number of accounts whose balance was written back.
+     */
+    int foldLedgers();
+
+    /**
+     * Starts the ledger of a new account with its opening balance.
+     *
+     * @param accountId The ID of the bank account.
+     * @param balance   The opening balance.
+     */
+    void open(long accountId, double balance);
+
+    /**
+     * Appends a debit entry to the account of the given user if the balance covers the amount.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param userId          The ID of the user who owns the account.
+     * @param amount          The amount to debit.
+     * @param transactionType The type of the appended entry.
+     * @return The balance after the debit, or {@code null} if the account wasn't found or the balance is insufficient.
+     */
+    Double debit(long accountId, long userId, double amount, String transactionType);
+
+    /**
+     * Appends a credit entry to the account of the given user.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param userId          The ID of the user who owns the account.
+     * @param amount          The amount to credit.
+     * @param transactionType The type of the appended entry.
+     * @return The balance after the credit, or {@code null} if the account wasn't found.
+     */
+    Double credit(long accountId, long userId, double amount, String transactionType);
+
+    /**
+     * Appends a credit entry to the account regardless of its owner.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param amount          The amount to credit.
+     * @param transactionType The type of the appended entry.
+     * @return The balance after the credit, or {@code null} if the account wasn't found.
+     */
+    Double credit(long accountId, double amount, String transactionType);
+
+    /**
+     * Computes the current balances of bank accounts.
+     *
+     * @param accountIds The IDs of the bank accounts.
+     * @return The balances by account ID; accounts that weren't found are absent.
+     */
+    Map<Long, Double> getBalances(Collection<Long> accountIds);
+
+    /**
+     * Computes the balance of a bank account at a point in time. Entries are taken into account by the time
+     * they were appended. Balances before the account joined the ledger don't include its opening balance.
+     *
+     * @param accountId The ID of the bank account.
+     * @param at        The point in time.
+     * @return The balance at that point in time.
+     * @throws LedgerDisabledException If the ledger mode is disabled.
+     */
+    double getBalanceAt(long accountId, Instant at) throws LedgerDisabledException;
+
+    /**
+     * Takes snapshots of the accounts that have reached the snapshot interval after the current transaction commits.
+     * Meant for entries appended without this ledger, e.g. by batched inserts; they must be flushed beforehand.
+     *
+     * @param accountIds The IDs of the bank accounts entries were appended to.
+     */
+    void snapshotIfDue(Collection<Long> accountIds);
+}
@@ -0,0 +1,232 @@
+package ru.betuganova.Service.Ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Exception.LedgerDisabledException;
+import ru.betuganova.Projection.LedgerBalanceView;
+import ru.betuganova.Repository.LedgerRepository;
+import ru.betuganova.Util.TransactionHooks;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the {@link Ledger} interface on top of the transactions and balance_snapshots tables.
+ * Credits only append an entry, so concurrent credits of one account don't wait for each other; debits lock
+ * the account row to check the balance. Snapshots are taken after commit in a separate transaction; a failed
+ * snapshot is counted in {@code bank.ledger.snapshot.failures} and retried by the next append.
+ * Startup only checks that the stored data is in the configured mode and fails otherwise; the data is converted
+ * between the modes by {@link #startLedgers()} and {@link #foldLedgers()}, run by the {@code LedgerMode} command
+ * while no instance is serving traffic. All instances sharing a database must run in the same mode.
+ */
+@Component
+public class LedgerImpl implements Ledger, SmartInitializingSingleton {
+    private final LedgerRepository ledgerRepository;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate newTransaction;
+    private final boolean enabled;
+    private final boolean verifyOnStartup;
+    private final int snapshotInterval;
+    private final Counter snapshots;
+    private final Counter snapshotFailures;
+
+    /**
+     * Constructs a LedgerImpl.
+     *
+     * @param enabled          Whether balances are derived from the transaction log.
+     * @param verifyOnStartup  Whether startup fails if the stored data isn't in the configured mode.
+     * @param snapshotInterval The number of entries after which a new snapshot is taken.
+     */
+    @Autowired
+    public LedgerImpl(LedgerRepository ledgerRepository,
+                      PlatformTransactionManager transactionManager,
+                      MeterRegistry meterRegistry,
+                      @Value("${bank.ledger.enabled:false}") boolean enabled,
+                      @Value("${bank.ledger.verify-on-startup:true}") boolean verifyOnStartup,
+                      @Value("${bank.ledger.snapshot-interval:100}") int snapshotInterval) {
+        this.ledgerRepository = ledgerRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.verifyOnStartup = verifyOnStartup;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.snapshots = Counter.builder("bank.ledger.snapshots")
+                .description("Balance snapshots taken")
+                .register(meterRegistry);
+        this.snapshotFailures = Counter.builder("bank.ledger.snapshot.failures")
+                .description("Balance snapshots that failed and are left to the next append")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!verifyOnStartup) {
+            return;
+        }
+
+        if (enabled && ledgerRepository.existsAccountWithoutLedger()) {
+            throw new IllegalStateException("The ledger mode is enabled, but some accounts have no ledger; " +
+                    "convert the data with 'LedgerMode enable' before starting the application");
+        }
+        if (!enabled && ledgerRepository.existsLedger()) {
+            throw new IllegalStateException("The ledger mode is disabled, but the accounts still have ledgers; " +
+                    "convert the data with 'LedgerMode disable' before starting the application");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int startLedgers() {
+        return transaction.execute(status -> {
+            ledgerRepository.lockAccounts();
+            return ledgerRepository.startLedgers();
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int foldLedgers() {
+        return transaction.execute(status -> {
+            ledgerRepository.lockAccounts();
+            int folded = ledgerRepository.foldLedgers();
+            ledgerRepository.deleteSnapshots();
+            return folded;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void open(long accountId, double balance) {
+        ledgerRepository.insertOpeningSnapshot(accountId, balance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Double debit(long accountId, long userId, double amount, String transactionType) {
+        if (ledgerRepository.lockForDebit(accountId, userId) == null) {
+            return null;
+        }
+
+        LedgerBalanceView balance = balanceOf(accountId);
+        if (balance.getBalance() < amount) {
+            return null;
+        }
+
+        ledgerRepository.append(accountId, amount, transactionType);
+        snapshotIfDue(accountId, balance.getTailLength() + 1);
+
+        return balance.getBalance() - amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Double credit(long accountId, long userId, double amount, String transactionType) {
+        if (ledgerRepository.append(accountId, userId, amount, transactionType) == 0) {
+            return null;
+        }
+
+        return balanceAfterCredit(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Double credit(long accountId, double amount, String transactionType) {
+        if (ledgerRepository.append(accountId, amount, transactionType) == 0) {
+            return null;
+        }
+
+        return balanceAfterCredit(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<Long, Double> getBalances(Collection<Long> accountIds) {
+        Map<Long, Double> balances = new HashMap<>(accountIds.size() * 2);
+
+        if (!accountIds.isEmpty()) {
+            for (LedgerBalanceView balance : ledgerRepository.findBalances(accountIds)) {
+                balances.put(balance.getAccountId(), balance.getBalance());
+            }
+        }
+
+        return balances;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getBalanceAt(long accountId, Instant at) throws LedgerDisabledException {
+        if (!enabled) {
+            throw new LedgerDisabledException("Balances at a point in time are only available in the ledger mode");
+        }
+
+        return ledgerRepository.findBalanceAt(accountId, at);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void snapshotIfDue(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return;
+        }
+
+        for (LedgerBalanceView balance : ledgerRepository.findBalances(accountIds)) {
+            snapshotIfDue(balance.getAccountId(), balance.getTailLength());
+        }
+    }
+
+    private void snapshotIfDue(long accountId, long tailLength) {
+        if (tailLength < snapshotInterval) {
+            return;
+        }
+
+        TransactionHooks.afterCommit(() -> {
+            try {
+                Integer taken = newTransaction.execute(status -> {
+                    ledgerRepository.lockForSnapshot(accountId);
+                    return ledgerRepository.takeSnapshot(accountId, snapshotInterval);
+                });
+                snapshots.increment(taken == null ? 0 : taken);
+            } catch (RuntimeException e) {
+                snapshotFailures.increment();
+            }
+        });
+    }
+
+    private Double balanceAfterCredit(long accountId) {
+        LedgerBalanceView balance = balanceOf(accountId);
+        snapshotIfDue(accountId, balance.getTailLength());
+
+        return balance.getBalance();
+    }
+
+    private LedgerBalanceView balanceOf(long accountId) {
+        return ledgerRepository.findBalances(List.of(accountId)).get(0);
+    }
+}
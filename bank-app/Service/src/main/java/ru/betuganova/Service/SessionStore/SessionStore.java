@@ -0,0 +1,40 @@
+package ru.betuganova.Service.SessionStore;
+
+import ru.betuganova.Model.User;
+
+/**
+ * In-memory store of client sessions, keyed by opaque session tokens.
+ */
+public interface SessionStore {
+    /**
+     * Opens a new session for a user.
+     *
+     * @param user The logged-in user.
+     * @return The token identifying the new session.
+     */
+    String create(User user);
+
+    /**
+     * Resolves the user of a session.
+     *
+     * @param token The session token.
+     * @return The user of the session, or {@code null} if the session doesn't exist or has expired.
+     */
+    User find(String token);
+
+    /**
+     * Replaces the user of an existing session, e.g. after their friend list changed.
+     * Does nothing if the session doesn't exist.
+     *
+     * @param token The session token.
+     * @param user  The up-to-date user.
+     */
+    void update(String token, User user);
+
+    /**
+     * Closes a session.
+     *
+     * @param token The session token.
+     */
+    void remove(String token);
+}
@@ -0,0 +1,83 @@
+package ru.betuganova.Service.SessionStore;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.betuganova.Model.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Implementation of the {@link SessionStore} interface backed by a Caffeine cache.
+ * Sessions expire after {@code bank.sessions.idle-timeout} without requests; the number of
+ * open sessions is bounded by {@code bank.sessions.max-size}.
+ * Tokens are 256 random bits from a {@link SecureRandom}, encoded as URL-safe Base64.
+ */
+@Component
+public class SessionStoreImpl implements SessionStore {
+    private static final int TOKEN_BYTES = 32;
+
+    private final Cache<String, User> sessions;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructs a SessionStoreImpl and registers the metrics of its cache.
+     *
+     * @param idleTimeout The time after the last request at which a session expires.
+     * @param maxSize     The maximum number of open sessions.
+     */
+    @Autowired
+    public SessionStoreImpl(MeterRegistry meterRegistry,
+                            @Value("${bank.sessions.idle-timeout:30m}") Duration idleTimeout,
+                            @Value("${bank.sessions.max-size:1000000}") long maxSize) {
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "sessions");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String create(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, user);
+
+        return token;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public User find(String token) {
+        return token == null ? null : sessions.getIfPresent(token);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void update(String token, User user) {
+        sessions.asMap().computeIfPresent(token, (key, previous) -> user);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void remove(String token) {
+        if (token != null) {
+            sessions.invalidate(token);
+        }
+    }
+}
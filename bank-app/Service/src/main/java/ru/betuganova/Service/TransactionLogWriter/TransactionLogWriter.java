@@ -0,0 +1,26 @@
+package ru.betuganova.Service.TransactionLogWriter;
+
+/**
+ * Optional write-behind mode for the transaction history. Balance changes commit synchronously, while the
+ * transaction records are queued after commit and written to the transactions table in the background.
+ * The history of an account may therefore lag behind its balance for a short time.
+ */
+public interface TransactionLogWriter {
+    /**
+     * Checks whether the write-behind mode is enabled.
+     *
+     * @return {@code true} if transaction records are written in the background.
+     */
+    boolean isEnabled();
+
+    /**
+     * Reserves a place in the queue for a transaction record and queues the record once the current
+     * transaction commits. Records of rolled back transactions are discarded.
+     *
+     * @param accountId       The ID of the bank account.
+     * @param transactionType The type of the transaction.
+     * @param amount          The amount of the transaction.
+     * @throws ru.betuganova.Exception.TransactionLogFullException If the queue is full, without waiting for space.
+     */
+    void record(long accountId, String transactionType, double amount);
+}
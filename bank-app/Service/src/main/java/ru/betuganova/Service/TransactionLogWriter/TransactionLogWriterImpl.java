@@ -0,0 +1,327 @@
+package ru.betuganova.Service.TransactionLogWriter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.betuganova.Exception.TransactionLogFullException;
+import ru.betuganova.Util.TransactionHooks;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the {@link TransactionLogWriter} interface.
+ * Records are queued in a bounded queue of {@code bank.transactions.write-behind.queue-capacity} records and
+ * written by a single background thread with {@code COPY ... FROM STDIN}, up to
+ * {@code bank.transactions.write-behind.batch-size} records at a time. A record reserves its place in the queue
+ * when it's recorded, before its transaction commits, and frees it once it's written, dropped or rolled back.
+ * When the queue has no free place the record is rejected at once with a {@link TransactionLogFullException}, so
+ * the balance transaction rolls back instead of waiting with its connection and account locks held. Committed
+ * records therefore never wait for the queue. A batch that fails transiently (a lost connection, a deadlock, a lack
+ * of resources) is retried with backoff; the background writer retries it for as long as it runs, the final drain
+ * and a record committed after it give up after a few attempts. A batch that fails permanently, e.g. because a record violates a constraint, is split to write
+ * every record but the failing ones. Records that are given up on are logged with all their fields, so they can
+ * be replayed, and counted as dropped. The queue lives in memory only: records queued when the process crashes
+ * are lost. The writer stops after the web server, draining the queue.
+ * The {@code bank.transactions.write-behind.*} metrics expose the queue depth, the age of the oldest queued
+ * record (lag), flush durations and the number of written, synchronously written, rejected, failed and dropped records.
+ */
+@Slf4j
+@Component
+public class TransactionLogWriterImpl implements TransactionLogWriter, SmartLifecycle {
+    private static final String COPY_SQL =
+            "COPY transactions (transaction_type, amount, account_id, created_at) FROM STDIN (FORMAT csv)";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(5);
+    private static final int ATTEMPTS_ON_SHUTDOWN = 3;
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Entry> queue;
+    private final Semaphore freePlaces;
+    private final Timer flushTimer;
+    private final Counter written;
+    private final Counter writtenSynchronously;
+    private final Counter rejected;
+    private final Counter failures;
+    private final Counter dropped;
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * Constructs a TransactionLogWriterImpl and registers its metrics.
+     *
+     * @param enabled       Whether transaction records are written in the background.
+     * @param queueCapacity The maximum number of queued and reserved records.
+     * @param batchSize     The maximum number of records written by one COPY.
+     */
+    @Autowired
+    public TransactionLogWriterImpl(DataSource dataSource,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${bank.transactions.write-behind.enabled:false}") boolean enabled,
+                                    @Value("${bank.transactions.write-behind.queue-capacity:100000}") int queueCapacity,
+                                    @Value("${bank.transactions.write-behind.batch-size:10000}") int batchSize) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.freePlaces = new Semaphore(queueCapacity);
+
+        Gauge.builder("bank.transactions.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Transaction records waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("bank.transactions.write-behind.lag", this, TransactionLogWriterImpl::lagSeconds)
+                .description("Age of the oldest transaction record waiting to be written")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("bank.transactions.write-behind.flush")
+                .description("Time to write one batch of transaction records")
+                .register(meterRegistry);
+        this.written = Counter.builder("bank.transactions.write-behind.written")
+                .description("Transaction records written by the background writer")
+                .register(meterRegistry);
+        this.writtenSynchronously = Counter.builder("bank.transactions.write-behind.synchronous")
+                .description("Transaction records written by the producer because the writer had stopped")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bank.transactions.write-behind.rejected")
+                .description("Transaction records rejected, with their transactions, because the queue was full")
+                .register(meterRegistry);
+        this.failures = Counter.builder("bank.transactions.write-behind.failures")
+                .description("Failed attempts to write a batch of transaction records")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("bank.transactions.write-behind.dropped")
+                .description("Transaction records given up on because they can't be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void record(long accountId, String transactionType, double amount) {
+        if (!freePlaces.tryAcquire()) {
+            rejected.increment();
+            throw new TransactionLogFullException("Too many transactions are waiting to be recorded, try again later");
+        }
+
+        TransactionHooks.afterRollback(freePlaces::release);
+        TransactionHooks.afterCommit(() -> enqueue(new Entry(accountId, transactionType, amount)));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        writer = Thread.ofPlatform()
+                .name("transaction-log-writer")
+                .daemon()
+                .start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so no request can queue a record after the final drain.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Queues a committed record into the place it reserved, so it never waits. Once the writer has stopped, which
+     * only a record committed during shutdown can see, the record is written by the committing thread.
+     */
+    private void enqueue(Entry entry) {
+        if (running) {
+            queue.add(entry);
+            return;
+        }
+
+        try {
+            writtenSynchronously.increment(write(List.of(entry), ATTEMPTS_ON_SHUTDOWN));
+        } finally {
+            freePlaces.release();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(POLL_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                written.increment(write(batch, Integer.MAX_VALUE));
+                freePlaces.release(batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a batch. Transient failures are retried with exponential backoff, up to the given number of attempts
+     * and up to {@link #ATTEMPTS_ON_SHUTDOWN} once the writer is stopping. On a permanent failure the halves of
+     * the batch are written separately, down to the single records that can't be written.
+     *
+     * @return The number of written records.
+     */
+    private int write(List<Entry> batch, int maxAttempts) {
+        Duration backoff = POLL_INTERVAL;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flushTimer.recordCallable(() -> copy(batch));
+                return batch.size();
+            } catch (Exception e) {
+                failures.increment();
+
+                if (!isTransient(e)) {
+                    if (batch.size() == 1) {
+                        drop(batch, e);
+                        return 0;
+                    }
+
+                    int half = batch.size() / 2;
+                    return write(batch.subList(0, half), maxAttempts)
+                            + write(batch.subList(half, batch.size()), maxAttempts);
+                }
+
+                if ((!running && attempt >= ATTEMPTS_ON_SHUTDOWN) || attempt >= maxAttempts) {
+                    drop(batch, e);
+                    return 0;
+                }
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drop(batch, e);
+                return 0;
+            }
+            backoff = Collections.min(List.of(backoff.multipliedBy(2), MAX_RETRY_BACKOFF));
+        }
+    }
+
+    /**
+     * Checks whether a failed write may succeed when retried: the connection failed or was lost, the transaction was
+     * rolled back by a deadlock or a serialization failure, the database lacked resources or was shutting down.
+     * Anything else, e.g. a constraint violation or invalid data, fails again.
+     */
+    private static boolean isTransient(Exception e) {
+        if (e instanceof IOException || e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        if (!(e instanceof SQLException sqlException) || sqlException.getSQLState() == null) {
+            return false;
+        }
+
+        String sqlStateClass = sqlException.getSQLState().substring(0, 2);
+        return List.of("08", "40", "53", "57").contains(sqlStateClass);
+    }
+
+    private void drop(List<Entry> batch, Exception cause) {
+        dropped.increment(batch.size());
+        log.error("Dropped {} transaction records that couldn't be written: {}", batch.size(), cause.toString());
+        batch.forEach(entry -> log.error("Dropped transaction record: account_id={}, transaction_type={}, " +
+                        "amount={}, created_at={}",
+                entry.accountId, entry.transactionType, entry.amount, entry.committedAt));
+    }
+
+    private Void copy(List<Entry> batch) throws SQLException, IOException {
+        StringBuilder csv = new StringBuilder(batch.size() * 64);
+        for (Entry entry : batch) {
+            csv.append(entry.transactionType).append(',')
+                    .append(entry.amount).append(',')
+                    .append(entry.accountId).append(',')
+                    .append(entry.committedAt).append('\n');
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyManager.copyIn(COPY_SQL, new StringReader(csv.toString()));
+
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+
+        return null;
+    }
+
+    private double lagSeconds() {
+        Entry oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedAtNanos) / 1e9;
+    }
+
+    private static final class Entry {
+        private final long accountId;
+        private final String transactionType;
+        private final double amount;
+        private final Instant committedAt = Instant.now();
+        private final long enqueuedAtNanos = System.nanoTime();
+
+        private Entry(long accountId, String transactionType, double amount) {
+            this.accountId = accountId;
+            this.transactionType = transactionType;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.betuganova.Service.UserIdCache;
+
+import java.util.Set;
+
+/**
+ * Bounded cache of user IDs by login and of the IDs of the bank accounts each user owns,
+ * so services can resolve the current user without loading user entities.
+ */
+public interface UserIdCache {
+    /**
+     * Resolves the ID of a user by login.
+     *
+     * @param login The login of the user.
+     * @return The ID of the user, or {@code null} if there is no such user.
+     */
+    Long getUserId(String login);
+
+    /**
+     * Retrieves the IDs of the bank accounts owned by a user.
+     *
+     * @param userId The ID of the user.
+     * @return An unmodifiable set of bank account IDs.
+     */
+    Set<Long> getAccountIds(long userId);
+
+    /**
+     * Drops the cached ID of a login, e.g. after a user with this login was created.
+     *
+     * @param login The login of the user.
+     */
+    void invalidateUser(String login);
+
+    /**
+     * Drops the cached bank account IDs of a user, e.g. after an account was opened.
+     *
+     * @param userId The ID of the user.
+     */
+    void invalidateAccounts(long userId);
+}
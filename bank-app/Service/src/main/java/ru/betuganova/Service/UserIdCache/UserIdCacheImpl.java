@@ -0,0 +1,99 @@
+package ru.betuganova.Service.UserIdCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.betuganova.Repository.BankAccountRepository;
+import ru.betuganova.Repository.UserRepository;
+
+import java.util.Set;
+
+/**
+ * Implementation of the {@link UserIdCache} interface backed by two size-bounded Caffeine caches.
+ * Hit, miss and eviction counters are published as the {@code cache.*} metrics of the
+ * {@code userIdsByLogin} and {@code accountIdsByUser} caches. Unknown logins are not cached.
+ * Misses are loaded outside of the cache's compute methods: those hold a monitor of the underlying
+ * map for the duration of the load and would pin a virtual thread for the whole query. Concurrent misses
+ * of the same key may therefore load it more than once, and an account set loaded concurrently with
+ * {@link #invalidateAccounts(long)} may be stale until the next invalidation.
+ */
+@Component
+public class UserIdCacheImpl implements UserIdCache {
+    private final UserRepository userRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final Cache<String, Long> userIds;
+    private final Cache<Long, Set<Long>> accountIds;
+
+    /**
+     * Constructs a UserIdCacheImpl and registers the metrics of its caches.
+     *
+     * @param maxSize The maximum number of entries of each cache.
+     */
+    @Autowired
+    public UserIdCacheImpl(UserRepository userRepository,
+                           BankAccountRepository bankAccountRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${bank.user-id-cache.max-size:100000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.userIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.accountIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, userIds, "userIdsByLogin");
+        CaffeineCacheMetrics.monitor(meterRegistry, accountIds, "accountIdsByUser");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long getUserId(String login) {
+        Long userId = userIds.getIfPresent(login);
+
+        if (userId == null) {
+            userId = userRepository.findIdByLogin(login);
+            if (userId != null) {
+                userIds.put(login, userId);
+            }
+        }
+
+        return userId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Long> getAccountIds(long userId) {
+        Set<Long> ids = accountIds.getIfPresent(userId);
+
+        if (ids == null) {
+            ids = Set.copyOf(bankAccountRepository.findIdsByUserId(userId));
+            accountIds.put(userId, ids);
+        }
+
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void invalidateUser(String login) {
+        userIds.invalidate(login);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void invalidateAccounts(long userId) {
+        accountIds.invalidate(userId);
+    }
+}
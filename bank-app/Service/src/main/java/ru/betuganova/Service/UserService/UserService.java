@@ -1,9 +1,11 @@
 package ru.betuganova.Service.UserService;
 
+import ru.betuganova.Model.CursorPage;
 import ru.betuganova.Model.HairColor;
 import ru.betuganova.Model.User;
 
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Service interface for managing user-related operations.
@@ -17,14 +19,15 @@ public interface UserService {
     Boolean IsAuthorized();
 
     /**
-     * Logs in a user with the given login.
+     * Logs in a user with the given login by opening a new session.
      *
      * @param login The login of the user.
+     * @return The token of the session, to be sent with the following requests.
      */
-    void login(String login);
+    String login(String login);
 
     /**
-     * Logs out the currently logged-in user.
+     * Logs out the currently logged-in user by closing their session.
      */
     void logout();
 
@@ -41,11 +44,13 @@ public interface UserService {
     User createUser(String login, String name, int age, String gender, HairColor hairColor);
 
     /**
-     * Retrieves information about the currently logged-in user.
+     * Retrieves information about the currently logged-in user. The user held by the session is checked against
+     * the version in the database and reloaded if it was changed, e.g. through another session.
      *
      * @return A string containing user details.
+     * @throws NoSuchElementException If the user no longer exists.
      */
-    User getUserInfo();
+    User getUserInfo() throws NoSuchElementException;
 
     /**
      * Adds a friend to the currently logged-in user's friend list.
@@ -62,13 +67,16 @@ public interface UserService {
     void deleteFriend(String login);
 
     /**
-     * Retrieves a list of users filtered by hair color and gender.
+     * Retrieves a page of users filtered by hair color and gender, ordered by ID.
+     * Users of the page are returned without their friend lists.
      *
-     * @param hairColor the hair color to filter users by;
-     * @param gender the gender to filter users by; use a predefined value (e.g., 1 for male, 2 for female);
-     * @return a list of users matching the specified hair color and gender criteria
+     * @param hairColor the hair color to filter users by, or {@code null} for any hair color;
+     * @param gender the gender to filter users by; use a predefined value (e.g., 1 for male, 2 for female), 0 for any;
+     * @param after the cursor returned with the previous page, or 0 for the first page;
+     * @param limit the maximum number of users in the page;
+     * @return a page of users matching the specified hair color and gender criteria
      */
-    List<User> getUsersByHairColorAndGender(String hairColor, int gender);
+    CursorPage<User> getUsersByHairColorAndGender(String hairColor, int gender, long after, int limit);
 
     /**
      * Retrieves the list of friends for a user by their ID.
@@ -77,4 +85,14 @@ public interface UserService {
      * @return a list of users who are friends with the specified user
      */
     List<User> getFriendsById(Long id);
+
+    /**
+     * Retrieves a version of the friend list of a user without loading it.
+     * The version changes whenever the friend list of the user or of one of the friends changes.
+     *
+     * @param id the ID of the user
+     * @return an opaque version string
+     * @throws NoSuchElementException If the user is not found.
+     */
+    String getFriendsVersion(long id);
 }
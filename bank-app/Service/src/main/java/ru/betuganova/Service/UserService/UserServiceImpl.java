@@ -1,6 +1,7 @@
 package ru.betuganova.Service.UserService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.betuganova.Entity.UserEntity;
@@ -9,10 +10,16 @@ import ru.betuganova.Exception.FriendExistsException;
 import ru.betuganova.Exception.UserExistsException;
 import ru.betuganova.Exception.UserFriendException;
 import ru.betuganova.Mapper.UserMapper;
+import ru.betuganova.Model.CursorPage;
 import ru.betuganova.Model.HairColor;
 import ru.betuganova.Model.User;
+import ru.betuganova.Projection.UserSummaryView;
 import ru.betuganova.Repository.UserRepository;
 import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.FriendshipIndex.FriendshipIndex;
+import ru.betuganova.Service.SessionStore.SessionStore;
+import ru.betuganova.Service.UserIdCache.UserIdCache;
+import ru.betuganova.Util.TransactionHooks;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -24,27 +31,44 @@ import java.util.stream.Collectors;
  */
 @Service
 public class UserServiceImpl implements UserService {
+    private static final int MAX_USERS_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final CurrentUserManager currentUserManager;
     private final UserMapper userMapper;
+    private final FriendshipIndex friendshipIndex;
+    private final UserIdCache userIdCache;
+    private final SessionStore sessionStore;
 
     /**
      * Constructs a new {@code UserServiceImpl} with the specified repositories and user manager.
      *
      * @param currentUserManager The manager handling the current logged-in user.
+     * @param userMapper         Maps user entities to models.
+     * @param friendshipIndex    The in-memory friendship index kept in sync with friend list changes.
+     * @param userIdCache        The login to user ID cache, invalidated when a user is created.
+     * @param sessionStore       The store of the sessions opened on login.
      */
     @Autowired
-    public UserServiceImpl(CurrentUserManager currentUserManager, UserRepository userRepository) {
+    public UserServiceImpl(CurrentUserManager currentUserManager,
+                           UserRepository userRepository,
+                           UserMapper userMapper,
+                           FriendshipIndex friendshipIndex,
+                           UserIdCache userIdCache,
+                           SessionStore sessionStore) {
         this.userRepository = userRepository;
         this.currentUserManager = currentUserManager;
-        this.userMapper = new UserMapper(userRepository);
+        this.userMapper = userMapper;
+        this.friendshipIndex = friendshipIndex;
+        this.userIdCache = userIdCache;
+        this.sessionStore = sessionStore;
     }
 
     /**
      * {@inheritDoc}
      */
     public Boolean IsAuthorized() {
-        return currentUserManager.getCurrentUser() != null;
+        return currentUserManager.getCurrentSessionToken() != null;
     }
 
     /**
@@ -52,21 +76,21 @@ public class UserServiceImpl implements UserService {
      * {@inheritDoc}
      */
     @Transactional
-    public void login(String login) throws NoSuchElementException {
+    public String login(String login) throws NoSuchElementException {
         User user = userMapper.toModel(userRepository.findByLogin(login));
 
         if (user == null) {
             throw new NoSuchElementException("User with login: '" + login + "' wasn't found");
         }
 
-        currentUserManager.setCurrentUser(user);
+        return sessionStore.create(user);
     }
 
     /**
      * {@inheritDoc}
      */
     public void logout() {
-        currentUserManager.setCurrentUser(null);
+        sessionStore.remove(currentUserManager.getCurrentSessionToken());
     }
 
     /**
@@ -101,14 +125,30 @@ public class UserServiceImpl implements UserService {
         UserEntity user = new UserEntity(login, name, age, genderInt, hairColor.toString());
         userRepository.save(user);
 
+        TransactionHooks.afterCommit(() -> userIdCache.invalidateUser(login));
+
         return userMapper.toModel(user);
     }
 
     /**
      * {@inheritDoc}
      */
-    public User getUserInfo() {
-        return currentUserManager.getCurrentUser();
+    @Transactional(readOnly = true)
+    public User getUserInfo() throws NoSuchElementException {
+        User currentUser = currentUserManager.getCurrentUser();
+        Long version = userRepository.findVersionByLogin(currentUser.getLogin());
+
+        if (version == null) {
+            throw new NoSuchElementException("User with login: '" + currentUser.getLogin() + "' wasn't found");
+        }
+        // A lagging replica may not have the change this session already holds yet.
+        if (version <= currentUser.getVersion()) {
+            return currentUser;
+        }
+
+        User user = userMapper.toModel(userRepository.findByLogin(currentUser.getLogin()));
+        sessionStore.update(currentUserManager.getCurrentSessionToken(), user);
+        return user;
     }
 
     /**
@@ -134,8 +174,14 @@ public class UserServiceImpl implements UserService {
                 throw new UserFriendException("User can't be made it's friend");
             }
 
-            currentUser.addFriend(userRepository.findByLogin(login));
+            currentUser.addFriend(user);
             userRepository.save(currentUser);
+            currentUser.setVersion(userRepository.incrementVersion(currentUser.getId()));
+
+            long userId = currentUser.getId();
+            long friendId = user.getId();
+            TransactionHooks.afterCommit(() -> friendshipIndex.addFriendship(userId, friendId));
+            refreshSessionAfterCommit(currentUser);
 
         } else {
             throw new FriendExistsException("Friend was already added");
@@ -161,25 +207,50 @@ public class UserServiceImpl implements UserService {
 
         currentUser.deleteFriend(friend);
         userRepository.save(currentUser);
+        currentUser.setVersion(userRepository.incrementVersion(currentUser.getId()));
+
+        long userId = currentUser.getId();
+        long friendId = friend.getId();
+        TransactionHooks.afterCommit(() -> friendshipIndex.removeFriendship(userId, friendId));
+        refreshSessionAfterCommit(currentUser);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Transactional
-    public List<User> getUsersByHairColorAndGender(String hairColor, int gender) {
-        return userRepository.findAll()
-                .stream()
-                .filter(user -> hairColor == null || hairColor.equalsIgnoreCase(user.getHairColor()))
-                .filter(user -> gender == 0 || user.getGender() == gender)
-                .map(userMapper::toModel)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<User> getUsersByHairColorAndGender(String hairColor, int gender, long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_USERS_PAGE_SIZE));
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<UserSummaryView> users;
+        if (hairColor == null) {
+            users = gender == 0
+                    ? userRepository.findPage(after, fetchLimit)
+                    : userRepository.findPageByGender(gender, after, fetchLimit);
+        } else {
+            users = gender == 0
+                    ? userRepository.findPageByHairColor(hairColor.toUpperCase(), after, fetchLimit)
+                    : userRepository.findPageByHairColorAndGender(hairColor.toUpperCase(), gender, after, fetchLimit);
+        }
+
+        Long nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+
+        return new CursorPage<>(
+                users.stream()
+                        .map(userMapper::toModel)
+                        .collect(Collectors.toList()),
+                nextCursor);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<User> getFriendsById(Long id) throws NoSuchElementException {
         return userRepository.findById(id)
                 .map(userEntity -> userRepository.findFriendsByUserLogin(userEntity.getLogin())
@@ -188,4 +259,24 @@ public class UserServiceImpl implements UserService {
                         .collect(Collectors.toList()))
                 .orElseThrow(() -> new NoSuchElementException("User with id " + id + " not found"));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true)
+    public String getFriendsVersion(long id) throws NoSuchElementException {
+        String version = userRepository.findFriendsVersionByUserId(id);
+
+        if (version == null) {
+            throw new NoSuchElementException("User with id " + id + " not found");
+        }
+
+        return version;
+    }
+
+    private void refreshSessionAfterCommit(UserEntity currentUser) {
+        String token = currentUserManager.getCurrentSessionToken();
+        User user = userMapper.toModel(currentUser);
+        TransactionHooks.afterCommit(() -> sessionStore.update(token, user));
+    }
 }
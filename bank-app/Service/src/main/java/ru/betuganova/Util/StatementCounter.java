@@ -0,0 +1,52 @@
+package ru.betuganova.Util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is open.
+ * Registered as the Hibernate statement inspector with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}; Hibernate creates the instance,
+ * so the counts are kept in a static thread local. Statements sent through plain JDBC, such as {@code COPY},
+ * aren't counted.
+ */
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        long[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+
+        return sql;
+    }
+
+    /**
+     * Starts counting the statements of the current thread from zero.
+     */
+    public static void begin() {
+        COUNT.set(new long[1]);
+    }
+
+    /**
+     * Returns the number of statements counted so far on the current thread.
+     *
+     * @return The number of statements, or 0 if no count is open.
+     */
+    public static long current() {
+        long[] count = COUNT.get();
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return The number of statements counted since {@link #begin()}.
+     */
+    public static long end() {
+        long count = current();
+        COUNT.remove();
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.betuganova.Util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Registers callbacks that run when the current Spring-managed transaction ends.
+ */
+public final class TransactionHooks {
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs the action once the current transaction has committed or rolled back.
+     *
+     * @param action The action to run.
+     * @throws IllegalStateException If there is no active transaction.
+     */
+    public static void afterCompletion(Runnable action) {
+        requireActiveTransaction();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction has committed. The action is dropped on rollback.
+     *
+     * @param action The action to run.
+     * @throws IllegalStateException If there is no active transaction.
+     */
+    public static void afterCommit(Runnable action) {
+        requireActiveTransaction();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction has rolled back or ended in an unknown state.
+     *
+     * @param action The action to run.
+     * @throws IllegalStateException If there is no active transaction.
+     */
+    public static void afterRollback(Runnable action) {
+        requireActiveTransaction();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void requireActiveTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No active transaction to attach the callback to");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.betuganova.Service.AccountService;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.betuganova.ServiceTestEnvironment;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that withdrawals and replenishments execute the same number of SQL statements however long
+ * the transaction history of the account is. Statements are counted with the Hibernate statistics.
+ */
+class BankAccountServiceStatementsTest {
+    private static final int[] HISTORY_SIZES = {0, 1_000, 100_000};
+
+    private static ServiceTestEnvironment environment;
+    private static BankAccountService bankAccountService;
+    private static Statistics statistics;
+    private static long accountId;
+
+    @BeforeAll
+    static void startEnvironment() throws IOException {
+        environment = ServiceTestEnvironment.start(Map.of());
+        environment.seedUsers(1, 1e9);
+        accountId = environment.accountIdOf("user1");
+        environment.loginAs("user1");
+
+        bankAccountService = environment.bean(BankAccountService.class);
+        statistics = environment.bean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        // Resolves the user and its accounts once, so the measured calls only execute their own statements.
+        bankAccountService.replenish(accountId, 1);
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        if (environment != null) {
+            environment.bean(CurrentUserManager.class).unbind();
+            environment.close();
+        }
+    }
+
+    @Test
+    void withdrawAndReplenishDontDependOnHistoryLength() {
+        List<Long> withdrawals = new ArrayList<>();
+        List<Long> replenishments = new ArrayList<>();
+
+        for (int historySize : HISTORY_SIZES) {
+            growHistoryTo(historySize);
+
+            withdrawals.add(statementsOf(() -> bankAccountService.withdraw(accountId, 1)));
+            replenishments.add(statementsOf(() -> bankAccountService.replenish(accountId, 1)));
+        }
+
+        assertEquals(List.of(1L, 1L, 1L), withdrawals, "withdraw statements by history length " + historySizes());
+        assertEquals(List.of(1L, 1L, 1L), replenishments, "replenish statements by history length " + historySizes());
+    }
+
+    private static void growHistoryTo(int historySize) {
+        environment.jdbc().update("""
+                INSERT INTO transactions (transaction_type, amount, account_id)
+                SELECT 'REPLENISHMENT', 1, ? FROM generate_series(1, ? - (SELECT count(*) FROM transactions))
+                """, accountId, historySize);
+        environment.jdbc().execute("ANALYZE transactions");
+    }
+
+    private static long statementsOf(Runnable operation) {
+        statistics.clear();
+        operation.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static String historySizes() {
+        return Arrays.toString(HISTORY_SIZES);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that conflicts without an account of their own, such as deadlocks, are attributed to the accounts of the
+ * call, and that the per-account gauges are limited to the hottest accounts.
+ */
+class ConflictRetryImplTest {
+    private static final int HOT_ACCOUNTS = 2;
+
+    private MeterRegistry meterRegistry;
+    private ConflictRetryImpl conflictRetry;
+    private Accounts target;
+    private Accounts accounts;
+
+    @BeforeEach
+    void createProxy() {
+        meterRegistry = new SimpleMeterRegistry();
+        conflictRetry = new ConflictRetryImpl(meterRegistry, 3, Duration.ZERO, Duration.ZERO, HOT_ACCOUNTS);
+
+        target = new Accounts();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(conflictRetry);
+        accounts = proxyFactory.getProxy();
+    }
+
+    @Test
+    void deadlockIsAttributedToTheAccountsOfTheCall() {
+        target.failures = 1;
+
+        accounts.transfer(1, 2);
+
+        assertEquals(Map.of(1L, List.of(1L, 1L), 2L, List.of(1L, 1L)), statsByAccount());
+    }
+
+    @Test
+    void deadlockInsideTheTransactionOfARetryingCallerIsAttributedToTheAccountsOfTheCall() {
+        target.failures = 1;
+
+        conflictRetry.execute("execute", () -> {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            try {
+                accounts.transfer(3, 4);
+                return null;
+            } finally {
+                TransactionSynchronizationManager.setActualTransactionActive(false);
+            }
+        });
+
+        assertEquals(Map.of(3L, List.of(1L, 1L), 4L, List.of(1L, 1L)), statsByAccount());
+    }
+
+    @Test
+    void gaugesAreLimitedToTheHottestAccounts() {
+        for (long accountId = 1; accountId <= 10; accountId++) {
+            target.failures = 1;
+            accounts.transfer(accountId, accountId + 100);
+        }
+
+        assertEquals(HOT_ACCOUNTS, meterRegistry.find("bank.accounts.account.conflicts").gauges().size());
+        assertEquals(HOT_ACCOUNTS, meterRegistry.find("bank.accounts.account.retries").gauges().size());
+        assertEquals(HOT_ACCOUNTS, conflictRetry.getAccountStats().size());
+    }
+
+    private Map<Long, List<Long>> statsByAccount() {
+        return conflictRetry.getAccountStats()
+                .stream()
+                .collect(Collectors.toMap(AccountConflictStats::getAccountId,
+                        stats -> List.of(stats.getConflicts(), stats.getRetries())));
+    }
+
+    static class Accounts {
+        private int failures;
+
+        @RetryOnConflict
+        public void transfer(@ConflictingAccount long accountIdFrom, @ConflictingAccount long accountIdTo) {
+            if (failures > 0) {
+                failures--;
+                throw new CannotAcquireLockException("deadlock detected");
+            }
+        }
+    }
+}
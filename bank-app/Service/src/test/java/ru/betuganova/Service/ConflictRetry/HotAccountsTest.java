@@ -0,0 +1,64 @@
+package ru.betuganova.Service.ConflictRetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the Space-Saving tallies stay bounded and keep the accounts with the most conflicts.
+ */
+class HotAccountsTest {
+    @Test
+    void hotAccountsSurviveALongTailOfOneOffConflicts() {
+        HotAccounts hotAccounts = new HotAccounts(10);
+
+        for (long accountId = 1_000; accountId < 11_000; accountId++) {
+            hotAccounts.conflict(accountId);
+            if (accountId % 4 == 0) {
+                hotAccounts.conflict(1);
+                hotAccounts.conflict(2);
+            }
+        }
+
+        Map<Long, Long> conflicts = conflictsByAccount(hotAccounts);
+        assertEquals(10, conflicts.size());
+        assertTrue(conflicts.get(1L) >= 2_500);
+        assertTrue(conflicts.get(2L) >= 2_500);
+    }
+
+    @Test
+    void replacingAccountInheritsTheConflictsOfTheColdestOne() {
+        HotAccounts hotAccounts = new HotAccounts(2);
+
+        assertTrue(hotAccounts.conflict(1));
+        assertFalse(hotAccounts.conflict(1));
+        assertTrue(hotAccounts.conflict(2));
+        assertTrue(hotAccounts.conflict(3));
+
+        assertEquals(Map.of(1L, 2L, 3L, 2L), conflictsByAccount(hotAccounts));
+    }
+
+    @Test
+    void retriesAreCountedOnlyForTrackedAccounts() {
+        HotAccounts hotAccounts = new HotAccounts(1);
+
+        hotAccounts.conflict(1);
+        hotAccounts.retry(1);
+        hotAccounts.retry(2);
+
+        HotAccounts.Tally tally = hotAccounts.tallies().iterator().next();
+        assertEquals(1, tally.getAccountId());
+        assertEquals(1, tally.getRetries());
+    }
+
+    private static Map<Long, Long> conflictsByAccount(HotAccounts hotAccounts) {
+        return hotAccounts.tallies()
+                .stream()
+                .collect(Collectors.toMap(HotAccounts.Tally::getAccountId, HotAccounts.Tally::getConflicts));
+    }
+}
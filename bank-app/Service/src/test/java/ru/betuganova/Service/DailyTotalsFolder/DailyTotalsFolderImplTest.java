@@ -0,0 +1,73 @@
+package ru.betuganova.Service.DailyTotalsFolder;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.betuganova.Model.DailyTotal;
+import ru.betuganova.ServiceTestEnvironment;
+import ru.betuganova.Service.AccountService.BankAccountService;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the daily totals read the same before and after the deltas of inserted transactions are folded.
+ */
+class DailyTotalsFolderImplTest {
+    private static final LocalDate FROM = LocalDate.of(2000, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2100, 12, 31);
+
+    private static ServiceTestEnvironment environment;
+    private static BankAccountService bankAccountService;
+    private static long accountId;
+
+    @BeforeAll
+    static void startEnvironment() throws IOException {
+        environment = ServiceTestEnvironment.start(Map.of());
+        environment.seedUsers(1, 1000);
+        accountId = environment.accountIdOf("user1");
+        environment.loginAs("user1");
+        bankAccountService = environment.bean(BankAccountService.class);
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        if (environment != null) {
+            environment.bean(CurrentUserManager.class).unbind();
+            environment.close();
+        }
+    }
+
+    @Test
+    void foldingKeepsTheTotals() {
+        DailyTotalsFolder folder = environment.bean(DailyTotalsFolder.class);
+
+        bankAccountService.replenish(accountId, 10);
+        bankAccountService.replenish(accountId, 5);
+        bankAccountService.withdraw(accountId, 3);
+        folder.fold();
+        bankAccountService.replenish(accountId, 1);
+
+        List<String> beforeFold = totals();
+        assertEquals(List.of("REPLENISHMENT 16.0 3", "WITHDRAWAL 3.0 1"), beforeFold);
+
+        assertEquals(1, folder.fold());
+        assertEquals(0, environment.jdbc().queryForObject("SELECT count(*) FROM account_daily_total_deltas", Long.class));
+        assertEquals(beforeFold, totals());
+    }
+
+    private static List<String> totals() {
+        return bankAccountService.getDailyTotals(accountId, FROM, TO).stream()
+                .map(DailyTotalsFolderImplTest::format)
+                .toList();
+    }
+
+    private static String format(DailyTotal total) {
+        return total.getTransactionType() + " " + total.getTotalAmount() + " " + total.getTransactionCount();
+    }
+}
@@ -0,0 +1,114 @@
+package ru.betuganova.Service.FriendshipIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the open-addressing set against {@link HashSet}, including the colliding values of its linear probing.
+ */
+class LongSetTest {
+    @Test
+    void withAndWithoutMatchAHashSet() {
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        LongSet set = LongSet.EMPTY;
+
+        for (int i = 0; i < 20_000; i++) {
+            long value = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                set = set.without(value);
+                expected.remove(value);
+            } else {
+                set = set.with(value);
+                expected.add(value);
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertSameElements(expected, set);
+    }
+
+    @Test
+    void unchangedSetIsReturnedAsIs() {
+        LongSet set = LongSet.EMPTY.with(7);
+
+        assertSame(set, set.with(7));
+        assertSame(set, set.without(8));
+        assertSame(LongSet.EMPTY, set.without(7));
+    }
+
+    @Test
+    void updatesDontChangeTheOriginalSet() {
+        LongSet original = LongSet.EMPTY.with(1).with(2);
+
+        LongSet added = original.with(3);
+        LongSet removed = original.without(1);
+
+        assertFalse(original.contains(3));
+        assertTrue(original.contains(1));
+        assertEquals(3, added.size());
+        assertEquals(1, removed.size());
+    }
+
+    @Test
+    void valuesInTheSameSlotAreAllFound() {
+        // Multiples of 2^32 all hash to slot 0 of a small table, so they are found by probing only.
+        LongSet set = LongSet.EMPTY;
+        for (long i = 1; i <= 64; i++) {
+            set = set.with(i << 32);
+        }
+
+        for (long i = 1; i <= 64; i++) {
+            assertTrue(set.contains(i << 32));
+        }
+        assertFalse(set.contains(65L << 32));
+
+        for (long i = 1; i <= 64; i += 2) {
+            set = set.without(i << 32);
+        }
+        for (long i = 1; i <= 64; i++) {
+            assertEquals(i % 2 == 0, set.contains(i << 32));
+        }
+    }
+
+    @Test
+    void builderMatchesAHashSet() {
+        Random random = new Random(7);
+        Set<Long> expected = new HashSet<>();
+        LongSet.Builder builder = new LongSet.Builder();
+
+        for (int i = 0; i < 50_000; i++) {
+            long value = 1 + random.nextInt(30_000);
+            builder.add(value);
+            expected.add(value);
+        }
+
+        LongSet set = builder.build();
+        assertEquals(expected.size(), set.size());
+        assertSameElements(expected, set);
+        assertEquals(expected.size() + 1, set.with(30_001).size());
+    }
+
+    @Test
+    void emptyBuilderBuildsTheEmptySet() {
+        assertSame(LongSet.EMPTY, new LongSet.Builder().build());
+    }
+
+    private static void assertSameElements(Set<Long> expected, LongSet set) {
+        Set<Long> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+
+        for (long value = 1; value <= 2_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
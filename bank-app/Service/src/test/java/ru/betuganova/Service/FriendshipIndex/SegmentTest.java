@@ -0,0 +1,97 @@
+package ru.betuganova.Service.FriendshipIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the open-addressing table of the friendship index: updates, growth, and lookups with optimistic reads
+ * while a writer keeps resizing the table.
+ */
+class SegmentTest {
+    @Test
+    void updateReplacesTheSetAndReportsTheChangeOfEdges() {
+        FriendshipIndexImpl.Segment segment = new FriendshipIndexImpl.Segment();
+
+        assertEquals(2, segment.update(5, friends -> friends.with(1).with(2)));
+        assertEquals(0, segment.update(5, friends -> friends.with(1)));
+        assertEquals(-1, segment.update(5, friends -> friends.without(2)));
+
+        assertTrue(segment.get(5).contains(1));
+        assertEquals(1, segment.get(5).size());
+        assertNull(segment.get(6));
+        assertEquals(1, segment.size());
+    }
+
+    @Test
+    void everyUserIsFoundAfterTheTableGrows() {
+        FriendshipIndexImpl.Segment segment = new FriendshipIndexImpl.Segment();
+        List<LongSet> sets = new ArrayList<>();
+
+        for (long userId = 1; userId <= 10_000; userId++) {
+            LongSet friends = LongSet.EMPTY.with(userId + 1);
+            sets.add(friends);
+            segment.update(userId, ignored -> friends);
+        }
+
+        assertEquals(10_000, segment.size());
+        for (long userId = 1; userId <= 10_000; userId++) {
+            assertSame(sets.get((int) userId - 1), segment.get(userId));
+        }
+        assertNull(segment.get(10_001));
+    }
+
+    @Test
+    void optimisticReadsSeeConsistentSetsWhileTheTableResizes() throws Exception {
+        FriendshipIndexImpl.Segment segment = new FriendshipIndexImpl.Segment();
+        int stableUsers = 1_000;
+        int addedUsers = 200_000;
+        for (long userId = 1; userId <= stableUsers; userId++) {
+            long friendId = userId;
+            segment.update(userId, ignored -> LongSet.EMPTY.with(friendId));
+        }
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get() && failure.get() == null) {
+                    long stable = 1 + random.nextInt(stableUsers);
+                    LongSet friends = segment.get(stable);
+                    if (friends == null || !friends.contains(stable)) {
+                        failure.set("user " + stable + " was lost during a resize");
+                    }
+
+                    long added = stableUsers + 1 + random.nextInt(addedUsers);
+                    LongSet addedFriends = segment.get(added);
+                    if (addedFriends != null && !addedFriends.contains(added)) {
+                        failure.set("user " + added + " has the friends of another user");
+                    }
+                }
+            }));
+        }
+
+        for (long userId = stableUsers + 1; userId <= stableUsers + addedUsers; userId++) {
+            long friendId = userId;
+            segment.update(userId, ignored -> LongSet.EMPTY.with(friendId));
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(stableUsers + addedUsers, segment.size());
+    }
+}
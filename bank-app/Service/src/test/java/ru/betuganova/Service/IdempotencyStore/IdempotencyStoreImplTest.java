@@ -0,0 +1,107 @@
+package ru.betuganova.Service.IdempotencyStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.betuganova.Model.IdempotentResult;
+import ru.betuganova.Model.User;
+import ru.betuganova.Repository.IdempotencyKeyRepository;
+import ru.betuganova.Service.ConflictRetry.ConflictRetryImpl;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.UserIdCache.UserIdCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a conflict is retried before the outcome of a key is shared with the concurrent calls waiting for it.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreImplTest {
+    private static final String KEY = "key";
+    private static final String FINGERPRINT = "POST /bank-accounts/replenishment";
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private CurrentUserManager currentUserManager;
+
+    @Mock
+    private UserIdCache userIdCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void waitingCallsGetTheResultOfTheRetry() throws Exception {
+        User user = new User();
+        user.setLogin("user1");
+        when(currentUserManager.getCurrentUser()).thenReturn(user);
+        when(userIdCache.getUserId("user1")).thenReturn(1L);
+        when(idempotencyKeyRepository.claim(anyLong(), anyString(), anyString())).thenReturn(1);
+
+        IdempotencyStoreImpl store = store();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        CompletableFuture<Thread> waiting = new CompletableFuture<>();
+
+        CompletableFuture<IdempotentResult> first = CompletableFuture.supplyAsync(() ->
+                store.execute(KEY, FINGERPRINT, () -> {
+                    if (attempts.incrementAndGet() == 1) {
+                        started.complete(null);
+                        awaitParked(waiting.join());
+                        throw new CannotAcquireLockException("deadlock detected");
+                    }
+                    return new IdempotentResult(200, "{}", false);
+                }));
+        FutureTask<IdempotentResult> second = new FutureTask<>(() -> store.execute(KEY, FINGERPRINT, () -> {
+            throw new AssertionError("The action ran for a waiting call");
+        }));
+        started.get(10, TimeUnit.SECONDS);
+        waiting.complete(Thread.ofPlatform().start(second));
+
+        IdempotentResult firstResult = first.get(10, TimeUnit.SECONDS);
+        IdempotentResult secondResult = second.get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, firstResult.getStatus());
+        assertFalse(firstResult.isReplayed());
+        assertEquals(200, secondResult.getStatus());
+        assertTrue(secondResult.isReplayed());
+        assertEquals(2, attempts.get());
+        verify(idempotencyKeyRepository, times(1)).complete(eq(1L), eq(KEY), eq(200), eq("{}"));
+    }
+
+    private IdempotencyStoreImpl store() {
+        ConflictRetryImpl conflictRetry = new ConflictRetryImpl(new SimpleMeterRegistry(), 5,
+                Duration.ZERO, Duration.ZERO, 100);
+        return new IdempotencyStoreImpl(idempotencyKeyRepository, currentUserManager, userIdCache, conflictRetry,
+                transactionManager, new SimpleMeterRegistry(), Duration.ofHours(1), 100);
+    }
+
+    /**
+     * Waits until the thread blocks waiting for the outcome of the running call.
+     */
+    private static void awaitParked(Thread thread) {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+    }
+}
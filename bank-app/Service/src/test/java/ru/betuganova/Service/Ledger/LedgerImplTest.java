@@ -0,0 +1,97 @@
+package ru.betuganova.Service.Ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.betuganova.Repository.LedgerRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that startup only verifies the mode of the stored data and that the data is only converted on request.
+ */
+@ExtendWith(MockitoExtension.class)
+class LedgerImplTest {
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void enabledStartupFailsIfAccountsHaveNoLedger() {
+        when(ledgerRepository.existsAccountWithoutLedger()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> ledger(true, true).afterSingletonsInstantiated());
+        verifyNothingConverted();
+    }
+
+    @Test
+    void disabledStartupFailsIfLedgersAreLeft() {
+        when(ledgerRepository.existsLedger()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> ledger(false, true).afterSingletonsInstantiated());
+        verifyNothingConverted();
+    }
+
+    @Test
+    void startupLeavesDataInTheConfiguredModeUntouched() {
+        ledger(true, true).afterSingletonsInstantiated();
+        ledger(false, true).afterSingletonsInstantiated();
+
+        verifyNothingConverted();
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void startupWithoutVerificationDoesntTouchTheDatabase() {
+        ledger(true, false).afterSingletonsInstantiated();
+
+        verifyNoInteractions(ledgerRepository, transactionManager);
+    }
+
+    @Test
+    void foldLedgersLocksTheAccountsAndDropsTheSnapshots() {
+        when(ledgerRepository.foldLedgers()).thenReturn(3);
+
+        assertEquals(3, ledger(false, false).foldLedgers());
+
+        InOrder order = inOrder(ledgerRepository);
+        order.verify(ledgerRepository).lockAccounts();
+        order.verify(ledgerRepository).foldLedgers();
+        order.verify(ledgerRepository).deleteSnapshots();
+    }
+
+    @Test
+    void startLedgersLocksTheAccounts() {
+        when(ledgerRepository.startLedgers()).thenReturn(2);
+
+        assertEquals(2, ledger(true, false).startLedgers());
+
+        InOrder order = inOrder(ledgerRepository);
+        order.verify(ledgerRepository).lockAccounts();
+        order.verify(ledgerRepository).startLedgers();
+    }
+
+    private LedgerImpl ledger(boolean enabled, boolean verifyOnStartup) {
+        return new LedgerImpl(ledgerRepository, transactionManager, new SimpleMeterRegistry(),
+                enabled, verifyOnStartup, 100);
+    }
+
+    private void verifyNothingConverted() {
+        verify(ledgerRepository, never()).lockAccounts();
+        verify(ledgerRepository, never()).startLedgers();
+        verify(ledgerRepository, never()).foldLedgers();
+        verify(ledgerRepository, never()).deleteSnapshots();
+    }
+}
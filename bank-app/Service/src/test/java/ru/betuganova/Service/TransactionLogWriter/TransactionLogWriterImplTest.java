@@ -0,0 +1,111 @@
+package ru.betuganova.Service.TransactionLogWriter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.betuganova.Exception.TransactionLogFullException;
+import ru.betuganova.ServiceTestEnvironment;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a record that can't be written is dropped without holding up the records queued with it, and that
+ * a full queue rejects a record together with its transaction instead of waiting.
+ */
+class TransactionLogWriterImplTest {
+    private static final long MISSING_ACCOUNT_ID = -1;
+    private static final int QUEUE_CAPACITY = 20;
+
+    private static ServiceTestEnvironment environment;
+    private static long accountId;
+
+    @BeforeAll
+    static void startEnvironment() throws IOException {
+        environment = ServiceTestEnvironment.start(Map.of(
+                "bank.transactions.write-behind.enabled", "true",
+                "bank.transactions.write-behind.queue-capacity", String.valueOf(QUEUE_CAPACITY)));
+        environment.seedUsers(1, 100);
+        accountId = environment.accountIdOf("user1");
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        if (environment != null) {
+            environment.close();
+        }
+    }
+
+    @Test
+    void recordViolatingAConstraintIsDroppedAndTheRestOfTheBatchIsWritten() throws InterruptedException {
+        TransactionLogWriter writer = environment.bean(TransactionLogWriter.class);
+        double writtenBefore = counter("bank.transactions.write-behind.written");
+        double droppedBefore = counter("bank.transactions.write-behind.dropped");
+        long transactionsBefore = transactionCount();
+
+        new TransactionTemplate(environment.bean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                writer.record(i == 5 ? MISSING_ACCOUNT_ID : accountId, "REPLENISHMENT", 1);
+            }
+        });
+
+        awaitRecords(writtenBefore + droppedBefore + 10);
+
+        assertEquals(writtenBefore + 9, counter("bank.transactions.write-behind.written"));
+        assertEquals(droppedBefore + 1, counter("bank.transactions.write-behind.dropped"));
+        assertEquals(transactionsBefore + 9, transactionCount());
+    }
+
+    @Test
+    void recordOverQueueCapacityRollsBackItsTransactionAndFreesTheReservedPlaces() throws InterruptedException {
+        TransactionLogWriter writer = environment.bean(TransactionLogWriter.class);
+        TransactionTemplate transactionTemplate =
+                new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        double recordsBefore = counter("bank.transactions.write-behind.written")
+                + counter("bank.transactions.write-behind.dropped");
+        long transactionsBefore = transactionCount();
+
+        assertThrows(TransactionLogFullException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+                writer.record(accountId, "REPLENISHMENT", 1);
+            }
+        }));
+
+        assertEquals(1, counter("bank.transactions.write-behind.rejected"));
+        assertEquals(transactionsBefore, transactionCount());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < QUEUE_CAPACITY; i++) {
+                writer.record(accountId, "REPLENISHMENT", 1);
+            }
+        });
+
+        awaitRecords(recordsBefore + QUEUE_CAPACITY);
+
+        assertEquals(transactionsBefore + QUEUE_CAPACITY, transactionCount());
+    }
+
+    private static long transactionCount() {
+        return environment.jdbc().queryForObject(
+                "SELECT count(*) FROM transactions WHERE account_id = ?", Long.class, accountId);
+    }
+
+    private static void awaitRecords(double records) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (counter("bank.transactions.write-behind.written") + counter("bank.transactions.write-behind.dropped")
+                < records && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static double counter(String name) {
+        return environment.bean(MeterRegistry.class).get(name).counter().count();
+    }
+}
@@ -0,0 +1,30 @@
+package ru.betuganova;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Non-web application context with the service and persistence layers of the bank app, used by the tests.
+ */
+@SpringBootApplication(scanBasePackages = {"ru.betuganova.Service", "ru.betuganova.Mapper"})
+@EntityScan("ru.betuganova.Entity")
+@EnableJpaRepositories("ru.betuganova.Repository")
+public class ServiceTestApp {
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    /**
+     * Jackson is only auto-configured together with the web layer, which isn't on the classpath of this module.
+     */
+    @Bean
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.betuganova;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.betuganova.Service.CurrentUserManager.CurrentUserManager;
+import ru.betuganova.Service.UserService.UserService;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An embedded PostgreSQL instance with the migrations applied and the {@link ServiceTestApp} context started on top.
+ */
+public class ServiceTestEnvironment implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private ServiceTestEnvironment(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    /**
+     * Starts the database, applies the migrations and starts the application context.
+     *
+     * @param overrides The properties that are added to or replace the defaults of the environment.
+     * @return The started environment.
+     * @throws IOException If the embedded database can't be started.
+     */
+    public static ServiceTestEnvironment start(Map<String, Object> overrides) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.jpa.properties.hibernate.generate_statistics", "true");
+        properties.put("spring.jpa.properties.hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ServiceTestApp.class)
+                    .web(WebApplicationType.NONE)
+                    .bannerMode(Banner.Mode.OFF)
+                    .logStartupInfo(false)
+                    .properties(properties)
+                    .run();
+
+            return new ServiceTestEnvironment(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public JdbcTemplate jdbc() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * Inserts users named {@code user1..userN}, each with one bank account with the given balance.
+     */
+    public void seedUsers(int users, double balance) {
+        jdbc().update("""
+                INSERT INTO users (login, name, age, gender, hair_color)
+                SELECT 'user' || g, 'User ' || g, 30, 1, 'BLACK' FROM generate_series(1, ?) g
+                """, users);
+        jdbc().update("INSERT INTO bank_accounts (user_id, balance) SELECT id, ? FROM users", balance);
+    }
+
+    public long accountIdOf(String login) {
+        return jdbc().queryForObject(
+                "SELECT a.id FROM bank_accounts a JOIN users u ON u.id = a.user_id WHERE u.login = ?",
+                Long.class, login);
+    }
+
+    /**
+     * Opens a session of the user and binds it to the calling thread.
+     *
+     * @param login The login of the user.
+     * @return The session token.
+     */
+    public String loginAs(String login) {
+        String token = bean(UserService.class).login(login);
+        bean(CurrentUserManager.class).bind(token);
+        return token;
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
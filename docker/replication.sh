@@ -0,0 +1,3 @@
+#!/bin/bash
+# Lets the replica of the "replica" compose profile stream WAL from this instance. Runs only on a fresh volume.
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"